@@ -1,57 +1,467 @@
 package jefferson;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.ObjectWriter;
+import jefferson.analyzer.ActionReader;
+import jefferson.analyzer.ActionWriter;
 import jefferson.analyzer.Analyzer;
+import jefferson.analyzer.Checkpoint;
+import jefferson.analyzer.ErrorReport;
+import jefferson.analyzer.JournalCache;
+import jefferson.analyzer.Roster;
+import jefferson.analyzer.Session;
+import jefferson.analyzer.SessionIndex;
+import jefferson.analyzer.Strip;
+import jefferson.analyzer.Trace;
 import jefferson.domain.Action;
 
 import java.io.IOException;
-import java.io.PrintStream;
+import java.io.UncheckedIOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
-import java.util.Arrays;
+import java.util.Deque;
 import java.util.List;
-import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiFunction;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
+// Usage: Main <session> [--mmap | --from-pdf [--keep-text]] [--roster=<path>] [--roster-from=<output json>]
+//             [--index=<path>] [--threads=<n> [--split-journals [--verify]]] [--checkpoint=<path> [--resume]]
+//             [--cache=<dir> [--cache-size=<MB>]] [--tolerant] [--errors=<path>] [--out=<path>] [--compact]
+//             [--normalized] [--trace=<level>] [--trace-file=<path>]
+//
+// By default this analyzes the jrnNNN.pdf.txt files Strip has produced. With --mmap those files are
+// memory mapped and analyzed in place, see MappedJournal. With --from-pdf it reads the journal PDFs
+// instead, streaming each page of text through the Sanitizer and into the Analyzer as it is
+// extracted; --keep-text additionally writes the .txt files as a side output.
+//
+// --roster keeps the names of the session's reps in a file, loaded before the first journal and
+// updated as new names turn up, so the vote parser knows every rep from the first vote on. An
+// empty roster can be seeded from the output of a previous run with --roster-from.
+//
+// --threads analyzes that many journals at a time; the output is the same as with one. Each journal
+// is analyzed knowing the rep names merged from the journals before it when it starts, see
+// Roster.view(), and what it learned is added to the roster in journal order. If the journals
+// before it turn out to have learned names it didn't know, it is analyzed again when its turn
+// comes, so it is parsed exactly as it would have been one journal after the other.
+//
+// --split-journals also splits each journal where bills are taken up and analyzes the parts
+// concurrently, so one long journal can use every thread, see Analyzer.analyzeSegmented(..). A
+// part doesn't know the names learned in the parts before it, so vote blocks may be parsed
+// differently than in one go. --verify additionally analyzes each journal in one go and fails if
+// the results differ.
+//
+// --checkpoint writes where the run has got to after each journal, see Checkpoint, and needs --out.
+// With --resume a run starts from there instead: journals already in the checkpoint are not
+// analyzed again, the actions found in them are read back from the output, and new ones are added
+// on. The rest are analyzed knowing exactly the names the checkpoint has, not those in --roster,
+// which may have been saved after it. The output is the same as analyzing the whole session in
+// one go. A run that fails with a checkpoint still writes out the actions of the journals in it,
+// so it can be resumed.
+//
+// --cache keeps the actions found in each journal in a directory, and uses them rather than
+// analyzing the journal again as long as neither it, the analyzer's rules nor the rep names known
+// before it have changed, see JournalCache. The least recently used are evicted to keep it under
+// --cache-size, 256MB by default. It is not used with --keep-text. With --split-journals, actions
+// are only cached if --verify found them the same as analyzing the journal in one go, so whichever
+// way they were found, cached actions are what a run without --split-journals gives.
+//
+// --tolerant keeps going when a journal doesn't make sense to the analyzer: the error is logged,
+// the motion it happened in is dropped, and analysis picks up again at the next bill taken up, see
+// ErrorReport. --errors also writes the errors to the given file, and implies --tolerant. Journals
+// with errors are not cached.
+//
+// --index writes a SessionIndex of the actions to the given file, so per-rep and per-bill queries
+// don't need to read the output.
+//
+// The actions found are written as JSON to stdout, and nothing else is, or with --out to that file;
+// pretty printed unless --compact. They are written out journal by journal, as soon as each is
+// merged, see ActionWriter, so they are never all held in memory. --normalized writes each
+// motion and rep name once, in tables the actions refer to by index, see ActionWriter.Format; read
+// it back with ActionReader. Diagnostics go to stderr at --trace level, and with --trace-file to
+// that file too, at every level. Either overrides just its own -Djefferson.trace property, and
+// without them diagnostics are as those configure them, INFO to stderr by default, see Trace.
 public class Main
 {
     public static void main(String ... args) throws IOException
     {
         String session = args[0];
-        List<Path> journals =
-                Files.list( Path.of( "./journals/" + session ) )
-                        .filter( p -> p.getFileName().toString().endsWith( ".txt" ) )
-                        .collect( Collectors.toList() );
+        boolean fromPdf = false;
+        boolean keepText = false;
+        boolean mmap = false;
+        Trace.Level traceLevel = null;
+        Path traceFile = null;
+        Path rosterFile = null;
+        Path rosterFrom = null;
+        Path indexFile = null;
+        int threads = 1;
+        boolean split = false;
+        boolean verify = false;
+        Path checkpointFile = null;
+        boolean resume = false;
+        Path cacheDir = null;
+        long cacheMegabytes = 256;
+        boolean tolerant = false;
+        Path errorsFile = null;
+        Path outFile = null;
+        boolean compact = false;
+        ActionWriter.Format format = ActionWriter.Format.PLAIN;
+        for ( int a = 1; a < args.length; a++ )
+        {
+            String[] option = args[a].split( "=", 2 );
+            switch( option[0] ) {
+            case "--from-pdf": fromPdf = true; break;
+            case "--keep-text": keepText = true; break;
+            case "--mmap": mmap = true; break;
+            case "--trace": traceLevel = Trace.Level.valueOf( value( option ).toUpperCase() ); break;
+            case "--trace-file": traceFile = Path.of( value( option ) ); break;
+            case "--roster": rosterFile = Path.of( value( option ) ); break;
+            case "--roster-from": rosterFrom = Path.of( value( option ) ); break;
+            case "--index": indexFile = Path.of( value( option ) ); break;
+            case "--threads": threads = Integer.parseInt( value( option ) ); break;
+            case "--split-journals": split = true; break;
+            case "--verify": verify = true; break;
+            case "--checkpoint": checkpointFile = Path.of( value( option ) ); break;
+            case "--resume": resume = true; break;
+            case "--cache": cacheDir = Path.of( value( option ) ); break;
+            case "--cache-size": cacheMegabytes = Long.parseLong( value( option ) ); break;
+            case "--out": outFile = Path.of( value( option ) ); break;
+            case "--compact": compact = true; break;
+            case "--normalized": format = ActionWriter.Format.NORMALIZED; break;
+            case "--tolerant": tolerant = true; break;
+            case "--errors": errorsFile = Path.of( value( option ) ); tolerant = true; break;
+            default: throw new IllegalArgumentException( "Unknown option: " + args[a] );
+            }
+        }
+        if(resume && checkpointFile == null) {
+            throw new IllegalArgumentException( "--resume needs a --checkpoint to resume from" );
+        }
+        if(checkpointFile != null && outFile == null) {
+            throw new IllegalArgumentException( "--checkpoint needs an --out to read actions back from on --resume" );
+        }
+        Trace.configure( traceLevel, traceFile );
+
+        String extension = fromPdf ? ".pdf" : ".txt";
+        List<Path> journals;
+        try ( Stream<Path> files = Files.list( Path.of( "./journals/" + session ) ) ) {
+            journals = files.filter( p -> p.getFileName().toString().endsWith( extension ) )
+                    .sorted()
+                    .collect( Collectors.toList() );
+        }
+
+        // Reps and motions, shared by every analyzer of the run
+        Session shared = new Session();
+        // The names in --roster, and to be saved back to it
+        Roster kept = rosterFile == null ? new Roster() : Roster.load( rosterFile );
+        if(rosterFrom != null) {
+            kept.learnFromOutput( rosterFrom );
+        }
+        // The names journals are analyzed knowing, which on resume are those in the checkpoint
+        Roster roster = kept;
+
+        List<String> done = new ArrayList<>();
+        // Actions of the journals in the checkpoint, read back from the output, to be output again before any new ones
+        List<Action> resumed = List.of();
+        // Actions output as of the last checkpoint, if there is one
+        int checkpointed = -1;
+        SessionIndex index = new SessionIndex();
+        if(resume && Files.exists( checkpointFile )) {
+            Checkpoint checkpoint = Checkpoint.read( checkpointFile );
+            List<String> names = new ArrayList<>();
+            journals.forEach( p -> names.add( p.getFileName().toString() ) );
+            if(!names.subList( 0, Math.min( names.size(), checkpoint.journals.size() ) ).equals( checkpoint.journals )) {
+                throw new IllegalStateException( String.format( "Journals in %s are not the first journals of session %s, run without --resume",
+                        checkpointFile, session ) );
+            }
+            resumed = Files.exists( outFile ) ? ActionReader.read( outFile, shared.reps(), shared.motions() ) : List.of();
+            if(resumed.size() != checkpoint.actions) {
+                throw new IllegalStateException( String.format( "%s has %d actions, not the %d in %s, run without --resume",
+                        outFile, resumed.size(), checkpoint.actions, checkpointFile ) );
+            }
+            // The roster file was saved as the interrupted run went on, so may know names the
+            // checkpointed journals didn't
+            roster = new Roster();
+            checkpoint.roster.forEach( roster::learn );
+            if(indexFile != null) {
+                for ( int a = 0; a < resumed.size(); a++ )
+                {
+                    index.add( a, resumed.get( a ) );
+                }
+            }
+            checkpointed = resumed.size();
+            done.addAll( checkpoint.journals );
+            journals = journals.subList( done.size(), journals.size() );
+            Trace.info( "checkpoint", "Resuming after %d journals, %d actions", done.size(), resumed.size() );
+        }
+        Trace.info( "roster", "Starting with %d known reps", roster.size() );
+
+        // Journals are analyzed concurrently, each by its own analyzer with its own view of the
+        // roster as merged so far. They are then merged in journal order, names learned included, and
+        // any analyzed without names merged since are analyzed again, so the output is the same
+        // however many threads we use.
+        // The text files aren't written when the actions come out of the cache, so don't use it then
+        JournalCache cache = cacheDir == null || keepText ? null : new JournalCache( cacheDir, cacheMegabytes * 1_000_000L, shared );
+        ErrorReport errors = tolerant ? new ErrorReport() : null;
+        long start = System.nanoTime();
+        AtomicLong paragraphs = new AtomicLong();
+        ExecutorService pool = Executors.newFixedThreadPool( threads );
+        boolean pdf = fromPdf, keep = keepText, mapped = mmap, segmented = split, check = verify, recover = tolerant;
+        BiFunction<Path, Roster, Journal> analyzeKnowing = ( path, known ) -> {
+            Roster view = known.view();
+            // Kept apart until the journal is merged, as it may be analyzed again
+            ErrorReport found = recover ? new ErrorReport() : null;
+            Supplier<CompletableFuture<List<Action>>> analyze;
+            if(segmented) {
+                analyze = () -> CompletableFuture.supplyAsync( () -> {
+                    try {
+                        return paragraphsOf( session, path, pdf, keep, mapped );
+                    } catch( IOException e ) {
+                        throw new UncheckedIOException( e );
+                    }
+                }, pool ).thenCompose( pgs -> {
+                    paragraphs.addAndGet( pgs.size() );
+                    // What the segments learn goes into view, so check against the roster from before them
+                    Roster before = view.view();
+                    return Analyzer.analyzeSegmented( pgs, shared, view, found, pool )
+                            .thenApply( actions -> check ? verify( path, pgs, shared, before, found, actions ) : actions );
+                } );
+            } else {
+                analyze = () -> CompletableFuture.supplyAsync( () -> {
+                    Analyzer analyzer = new Analyzer( shared, view, found );
+                    try {
+                        return analyzeJournal( analyzer, session, path, pdf, keep, mapped );
+                    } catch( IOException e ) {
+                        throw new UncheckedIOException( e );
+                    } finally {
+                        paragraphs.addAndGet( analyzer.paragraphsAnalyzed() );
+                    }
+                }, pool );
+            }
+            // Segmented actions aren't keyed apart, so only keep those checked against analyzing in one go
+            return new Journal( path, view, found, cache == null ? analyze.get()
+                    : cache.get( path, view, pool, analyze, actions -> ( !segmented || check ) && ( found == null || found.size() == 0 ) ) );
+        };
+        // Only as many journals as there are threads are analyzed ahead of the one being written, so
+        // their actions are all that is held at once, not the whole session's. Each starts knowing
+        // the names merged when it is taken on, so is less likely to need analyzing again.
+        Deque<Journal> pending = new ArrayDeque<>();
+        int next = 0;
+        for (; next < journals.size() && pending.size() < threads; next++ )
+        {
+            pending.add( analyzeKnowing.apply( journals.get( next ), roster ) );
+        }
 
-        List<Map<String, Object>> actions = new ArrayList<>();
         int i=0;
+        ActionWriter out = ActionWriter.open( outFile, compact, format );
         try
         {
-            Analyzer analyzer = new Analyzer();
+            for ( Action action : resumed )
+            {
+                out.write( action );
+            }
+            // Written, so no need to hold on to them
+            resumed = null;
             for (; i < journals.size(); i++ )
             {
-                Path path = journals.get( i );
-                System.err.printf("Analyzing %s..%n", path.getFileName() );
-                String raw = Files.readString( path );
-
-                String pdfFile = path.getFileName().toString().replace( ".txt", "" );
-
-                for ( Action action : analyzer.analyze(
-                        String.format( "https://house.mo.gov/billtracking/bills%s/jrnpdf/%s",
-                                session, pdfFile ), Arrays.asList( raw.split( "\n" ) ) ) )
+                Journal journal = pending.remove();
+                List<Action> actions = join( journal.actions );
+                if(!journal.view.upToDateWith( roster )) {
+                    // The journals before it learned names it didn't know when it started
+                    Trace.debug( "journal", "Analyzing %s again, knowing %d reps", journal.path.getFileName(), roster.size() );
+                    journal = analyzeKnowing.apply( journal.path, roster );
+                    actions = join( journal.actions );
+                }
+                for ( Action action : actions )
                 {
-                    actions.add( action.toMap() );
+                    if(indexFile != null) {
+                        index.add( out.written(), action );
+                    }
+                    out.write( action );
+                }
+                roster.learnFrom( journal.view );
+                if(errors != null) {
+                    errors.addAll( journal.errors );
+                }
+                for (; next < journals.size() && pending.size() < threads; next++ )
+                {
+                    pending.add( analyzeKnowing.apply( journals.get( next ), roster ) );
+                }
+                if(rosterFile != null) {
+                    if(kept != roster) {
+                        kept.learnFrom( roster );
+                    }
+                    kept.save( rosterFile );
+                }
+                done.add( journals.get( i ).getFileName().toString() );
+                if(checkpointFile != null) {
+                    new Checkpoint( done, roster.names(), out.written() ).write( checkpointFile );
+                    checkpointed = out.written();
                 }
             }
+            out.close();
         } catch(Exception e) {
-            System.err.printf("%d/%d%n", i, journals.size() );
+            if(i < journals.size()) {
+                Trace.warn( "failed", "Failed on journal %d/%d: %s", i + 1, journals.size(), journals.get( i ).getFileName() );
+            } else {
+                Trace.warn( "failed", "Failed writing the output" );
+            }
+            try {
+                // The checkpoint counts on the output having the actions of its journals, and no more
+                if(checkpointed == out.written()) {
+                    out.close();
+                }
+            } catch( Exception suppressed ) {
+                e.addSuppressed( suppressed );
+            } finally {
+                try {
+                    out.abort();
+                } catch( Exception suppressed ) {
+                    e.addSuppressed( suppressed );
+                }
+            }
             throw e;
+        } finally {
+            pool.shutdownNow();
+            if(cache != null) {
+                cache.close();
+            }
+            double seconds = (System.nanoTime() - start) / 1e9;
+            Trace.info( "summary", String.format( "Analyzed %d journals, %d paragraphs in %.2fs on %d threads (%.0f paragraphs/s)",
+                    i, paragraphs.get(), seconds, threads, paragraphs.get() / seconds ) );
+            if(errors != null) {
+                Trace.info( "errors", "Recovered from %d errors", errors.size() );
+            }
+            Trace.close();
+        }
+
+        if(errorsFile != null) {
+            errors.write( errorsFile );
         }
+        if(indexFile != null) {
+            index.write( indexFile );
+        }
+    }
 
-        ObjectMapper objectMapper = new ObjectMapper();
-        ObjectWriter objectWriter = objectMapper.writerWithDefaultPrettyPrinter();
-        System.out.println( objectWriter.writeValueAsString( actions ));
+    // A journal being analyzed, knowing the names in view when it started
+    private static class Journal
+    {
+        final Path path;
+        final Roster view;
+        // Null unless --tolerant
+        final ErrorReport errors;
+        final CompletableFuture<List<Action>> actions;
+
+        Journal( Path path, Roster view, ErrorReport errors, CompletableFuture<List<Action>> actions )
+        {
+            this.path = path;
+            this.view = view;
+            this.errors = errors;
+            this.actions = actions;
+        }
+    }
+
+    private static List<Action> analyzeJournal( Analyzer analyzer, String session, Path path, boolean fromPdf, boolean keepText, boolean mmap ) throws IOException
+    {
+        Trace.info( "journal", "Analyzing %s..", path.getFileName() );
+
+        String pdfFile = pdfFile( path );
+        String url = url( session, path );
+
+        if(fromPdf) {
+            Path textOutput = keepText ? path.resolveSibling( pdfFile + ".txt" ) : null;
+            analyzer.start();
+            Sanitizer.Feed feed = new Sanitizer().feed( url, analyzer::accept );
+            Strip.stream( path, feed, textOutput );
+            feed.end();
+            return analyzer.finish();
+        } else if(mmap) {
+            return analyzer.analyze( MappedJournal.open( path, url ) );
+        } else {
+            // Lines are read as the analyzer asks for them, so the journal is never held in memory
+            try ( Stream<String> lines = Files.lines( path ) ) {
+                return analyzer.analyze( url, lines::iterator );
+            }
+        }
+    }
+
+    // All of a journal's paragraphs, read the same way analyzeJournal(..) reads them
+    private static List<Sanitizer.Paragraph> paragraphsOf( String session, Path path, boolean fromPdf, boolean keepText, boolean mmap ) throws IOException
+    {
+        Trace.info( "journal", "Analyzing %s in segments..", path.getFileName() );
+
+        String url = url( session, path );
+        Iterable<Sanitizer.Paragraph> source;
+        if(fromPdf) {
+            List<String> lines = new ArrayList<>();
+            Strip.stream( path, lines::add, keepText ? path.resolveSibling( pdfFile( path ) + ".txt" ) : null );
+            source = new Sanitizer().sanitize( url, lines );
+        } else if(mmap) {
+            source = MappedJournal.open( path, url );
+        } else {
+            source = new Sanitizer().sanitize( url, Files.readAllLines( path ) );
+        }
+        List<Sanitizer.Paragraph> paragraphs = new ArrayList<>();
+        source.forEach( paragraphs::add );
+        return paragraphs;
+    }
+
+    // Check the actions from analyzing a journal in segments against analyzing it in one go, with
+    // the roster the segments started from
+    private static List<Action> verify( Path path, List<Sanitizer.Paragraph> paragraphs, Session shared, Roster roster, ErrorReport errors,
+            List<Action> segmented )
+    {
+        // Any errors have been reported already, when analyzing in segments
+        List<Action> sequential = new Analyzer( shared, roster, errors == null ? null : new ErrorReport() ).analyze( paragraphs );
+        for ( int i = 0; i < Math.max( sequential.size(), segmented.size() ); i++ )
+        {
+            Action expected = i < sequential.size() ? sequential.get( i ) : null;
+            Action actual = i < segmented.size() ? segmented.get( i ) : null;
+            if(expected == null || !expected.equals( actual )) {
+                throw new IllegalStateException( String.format( "%s: analyzing in segments gave %s as action %d, analyzing in one go gave %s",
+                        path.getFileName(), actual, i, expected ) );
+            }
+        }
+        Trace.info( "verified", "%s: %d actions, same in segments as in one go", path.getFileName(), segmented.size() );
+        return segmented;
+    }
+
+    private static String pdfFile( Path path )
+    {
+        return path.getFileName().toString().replace( ".txt", "" );
+    }
+
+    private static String url( String session, Path path )
+    {
+        return String.format( "https://house.mo.gov/billtracking/bills%s/jrnpdf/%s", session, pdfFile( path ) );
+    }
+
+    // Wait for a journal's actions, rethrowing whatever went wrong analyzing it
+    private static List<Action> join( CompletableFuture<List<Action>> result ) throws IOException
+    {
+        try {
+            return result.join();
+        } catch( CompletionException e ) {
+            if(e.getCause() instanceof UncheckedIOException) {
+                throw ((UncheckedIOException) e.getCause()).getCause();
+            }
+            if(e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    private static String value( String[] option )
+    {
+        if(option.length < 2 || option[1].isEmpty()) {
+            throw new IllegalArgumentException( "Option needs a value, like " + option[0] + "=<value>" );
+        }
+        return option[1];
     }
 }
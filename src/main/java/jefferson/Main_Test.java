@@ -0,0 +1,108 @@
+package jefferson;
+
+import jefferson.analyzer.Roster;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.invoke.MethodHandles;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+public class Main_Test
+{
+    public static void main(String ... argv) throws Exception
+    {
+        boolean assertsEnabled = false;
+        assert assertsEnabled = true;
+        if(!assertsEnabled) {
+            throw new AssertionError( "Assertions must be enabled to run tests." );
+        }
+
+        boolean passed = true;
+        Class<?> cls = MethodHandles.lookup().lookupClass();
+        for ( Method subject : cls.getDeclaredMethods() )
+        {
+            if( ! ( subject.getName().startsWith( "test" ) ) ) {
+                continue;
+            }
+            try {
+                subject.invoke( cls.getConstructors()[0].newInstance() );
+                System.err.printf("PASS: %s%n", subject.getName());
+            } catch( InvocationTargetException e ) {
+                if(e.getCause() != null && e.getCause() instanceof AssertionError ) {
+                    AssertionError ae = (AssertionError) e.getCause();
+                    System.err.printf("FAIL: %s: %s @ %s%n", subject.getName(), ae.getMessage(), ae.getStackTrace()[0].toString());
+                    passed = false;
+                } else {
+                    throw e;
+                }
+            }
+        }
+
+        if(!passed) {
+            System.exit( 1 );
+        }
+    }
+
+    public void testResumingWithARosterMatchesOneRun() throws Exception {
+        // Main reads the journals of a session from ./journals/<session>
+        Path journals = Files.createTempDirectory( Files.createDirectories( Path.of( "journals" ) ), "test" );
+        Path work = Files.createTempDirectory( "main" );
+        String session = journals.getFileName().toString();
+        try {
+            List<String> journal = loadJournal( "HB10_taken_up_amended_and_laid_over.txt" );
+            Files.write( journals.resolve( "jrn001.txt" ), journal );
+            Files.write( journals.resolve( "jrn002.txt" ), journal );
+            Files.write( journals.resolve( "jrn003.txt" ), journal );
+            Path full = work.resolve( "full.json" );
+            Main.main( session, "--roster=" + work.resolve( "full-roster.txt" ), "--out=" + full );
+
+            // Interrupted after two journals
+            Path roster = work.resolve( "roster.txt" );
+            Path checkpoint = work.resolve( "checkpoint.json" );
+            Path out = work.resolve( "out.json" );
+            Files.move( journals.resolve( "jrn003.txt" ), work.resolve( "jrn003.txt" ) );
+            Main.main( session, "--roster=" + roster, "--checkpoint=" + checkpoint, "--out=" + out );
+
+            // A name the checkpointed journals didn't know, as if the roster file was saved after the
+            // checkpoint. Known, it would be read as one rep where the journal has two.
+            Files.write( roster, List.of( "Bangert Baringer" ), StandardOpenOption.APPEND );
+            Files.move( work.resolve( "jrn003.txt" ), journals.resolve( "jrn003.txt" ) );
+            Main.main( session, "--roster=" + roster, "--checkpoint=" + checkpoint, "--resume", "--out=" + out );
+
+            assert Arrays.equals( Files.readAllBytes( full ), Files.readAllBytes( out ) ) : "Resumed output differs from one run";
+            assert Roster.load( roster ).names().contains( "bangert baringer" ) : "Dropped a name from the roster file";
+        } finally {
+            delete( journals );
+            delete( work );
+        }
+    }
+
+    private static List<String> loadJournal( String name ) throws IOException
+    {
+        try( InputStream in = Main_Test.class.getResourceAsStream( String.format( "/testdata/%s", name ) )) {
+            if(in == null) {
+                throw new IOException( "No test journal " + name );
+            }
+            return Arrays.asList( new String( in.readAllBytes(), StandardCharsets.UTF_8 ).split( "\n" ) );
+        }
+    }
+
+    private static void delete( Path dir ) throws IOException
+    {
+        try( Stream<Path> paths = Files.walk( dir ) ) {
+            for ( Path path : (Iterable<Path>) paths.sorted( Comparator.reverseOrder() )::iterator )
+            {
+                Files.delete( path );
+            }
+        }
+    }
+}
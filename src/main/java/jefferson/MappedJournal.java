@@ -0,0 +1,350 @@
+package jefferson;
+
+import jefferson.Sanitizer.Paragraph;
+import jefferson.analyzer.Source;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+// Alternative to reading a journal .txt into a String and running it through the Sanitizer: the
+// file is memory mapped, and paragraphs are views onto the mapped bytes rather than copies of them.
+// Iterating gives the same paragraphs, with the same line numbers, as Sanitizer.sanitize(..) does
+// for the file's lines.
+public class MappedJournal implements Iterable<Paragraph>
+{
+    private final String url;
+    private final CharSequence text;
+    // Char offset where each line starts; one extra entry at the end, one past the last line.
+    // Lines end with a \n, except possibly the last one.
+    private final int[] lineStarts;
+    private final int lines;
+
+    private MappedJournal( String url, CharSequence text )
+    {
+        this.url = url;
+        this.text = text;
+
+        int[] starts = new int[1024];
+        int count = 0;
+        int length = text.length();
+        starts[count++] = 0;
+        for ( int i = 0; i < length; i++ )
+        {
+            if(text.charAt( i ) == '\n' && i + 1 < length) {
+                if(count == starts.length) {
+                    starts = Arrays.copyOf( starts, count * 2 );
+                }
+                starts[count++] = i + 1;
+            }
+        }
+        if(count == starts.length) {
+            starts = Arrays.copyOf( starts, count + 1 );
+        }
+        // Pretend the last line ends with a \n, if it doesn't already
+        starts[count] = length > 0 && text.charAt( length - 1 ) == '\n' ? length : length + 1;
+        this.lineStarts = starts;
+        this.lines = length == 0 ? 0 : count;
+    }
+
+    public static MappedJournal open( Path path, String url ) throws IOException
+    {
+        ByteBuffer bytes;
+        try ( FileChannel channel = FileChannel.open( path, StandardOpenOption.READ ) ) {
+            // The mapping stays valid after the channel is closed
+            bytes = channel.map( FileChannel.MapMode.READ_ONLY, 0, channel.size() );
+        }
+        CharSequence text = Utf8Text.wrap( bytes );
+        if(text == null) {
+            // Characters outside the BMP or malformed input; rare enough to just decode the lot
+            text = StandardCharsets.UTF_8.decode( bytes.rewind() );
+        }
+        return new MappedJournal( url, text );
+    }
+
+    @Override
+    public Iterator<Paragraph> iterator()
+    {
+        return new Sanitizer.Skipping()
+        {
+            private int line = 0;
+            private Paragraph next;
+
+            @Override
+            public boolean hasNext()
+            {
+                if(next == null) {
+                    next = scan( null );
+                }
+                return next != null;
+            }
+
+            @Override
+            public Paragraph next()
+            {
+                if(!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                Paragraph out = next;
+                next = null;
+                return out;
+            }
+
+            @Override
+            public Paragraph nextContaining( String needle )
+            {
+                if(next != null) {
+                    Paragraph out = next;
+                    next = null;
+                    if(Sanitizer.contains( out.text, needle )) {
+                        return out;
+                    }
+                }
+                return scan( needle );
+            }
+
+            // The next paragraph, or if needle is not null, the next with it in one of its lines;
+            // paragraphs without it are passed over without making anything of them
+            private Paragraph scan( String needle )
+            {
+                int first = -1;
+                boolean found = needle == null;
+                for ( ; line < lines; line++ )
+                {
+                    if(isBreak( line )) {
+                        if(first != -1 && found) {
+                            // Line numbers are 1-based and name the line that ended the paragraph
+                            Paragraph out = new Paragraph( new Source( url, line + 1 ), new ParagraphText( first, line ) );
+                            line++;
+                            return out;
+                        }
+                        first = -1;
+                        found = needle == null;
+                    } else {
+                        if(first == -1) {
+                            first = line;
+                        }
+                        found = found || Sanitizer.contains( text.subSequence( lineStarts[line], lineEnd( line ) ), needle );
+                    }
+                }
+                if(first != -1 && found) {
+                    return new Paragraph( new Source( url, lines + 1 ), new ParagraphText( first, lines ) );
+                }
+                return null;
+            }
+        };
+    }
+
+    private int lineEnd( int line )
+    {
+        // Excludes the \n
+        return lineStarts[line + 1] - 1;
+    }
+
+    // Blank lines and page headers end paragraphs, same as in Sanitizer
+    private boolean isBreak( int line )
+    {
+        int start = lineStarts[line];
+        int end = lineEnd( line );
+        boolean blank = true;
+        for ( int i = start; i < end && blank; i++ )
+        {
+            blank = Character.isWhitespace( text.charAt( i ) );
+        }
+        return blank || Sanitizer.isHeader( text.subSequence( start, end ) );
+    }
+
+    // Lines first until end (exclusive), each followed by two spaces, which is how the Sanitizer
+    // joins them. Lines in a paragraph are adjacent in the file, so char i of the paragraph is at
+    // the same offset in the file, less one for each line break before it.
+    private class ParagraphText implements CharSequence
+    {
+        private final int first;
+        private final int end;
+        private final int length;
+        // Regex matching mostly walks forward, so remember which line we were on last
+        private int cursor;
+
+        ParagraphText( int first, int end )
+        {
+            this.first = first;
+            this.end = end;
+            this.length = lineStarts[end] - lineStarts[first] + (end - first);
+            this.cursor = first;
+        }
+
+        private int offsetOf( int line )
+        {
+            return lineStarts[line] - lineStarts[first] + (line - first);
+        }
+
+        @Override
+        public int length()
+        {
+            return length;
+        }
+
+        @Override
+        public char charAt( int index )
+        {
+            if(index < 0 || index >= length) {
+                throw new IndexOutOfBoundsException( index );
+            }
+            int line = cursor;
+            if(index < offsetOf( line ) || index >= offsetOf( line + 1 )) {
+                int lo = first, hi = end - 1;
+                while( lo < hi ) {
+                    int mid = (lo + hi + 1) >>> 1;
+                    if(offsetOf( mid ) <= index) {
+                        lo = mid;
+                    } else {
+                        hi = mid - 1;
+                    }
+                }
+                line = cursor = lo;
+            }
+            int pos = lineStarts[line] + index - offsetOf( line );
+            return pos < lineEnd( line ) ? text.charAt( pos ) : ' ';
+        }
+
+        @Override
+        public CharSequence subSequence( int start, int end )
+        {
+            // This is what regex groups are extracted with, and those are kept, so copy them out
+            if(start < 0 || end > length || start > end) {
+                throw new IndexOutOfBoundsException( start );
+            }
+            StringBuilder sb = new StringBuilder( end - start );
+            for ( int i = start; i < end; i++ )
+            {
+                sb.append( charAt( i ) );
+            }
+            return sb.toString();
+        }
+
+        @Override
+        public String toString()
+        {
+            StringBuilder sb = new StringBuilder( length );
+            for ( int line = first; line < end; line++ )
+            {
+                sb.append( text, lineStarts[line], lineEnd( line ) ).append( "  " );
+            }
+            return sb.toString();
+        }
+    }
+
+    // Chars of UTF-8 encoded text, read straight out of the buffer. Journals are nearly all ASCII,
+    // so rather than decode, we index just the multi-byte characters: char i is at byte i plus the
+    // extra bytes taken by multi-byte characters before it.
+    static class Utf8Text implements CharSequence
+    {
+        private final ByteBuffer bytes;
+        // Char index of each multi-byte character, ascending
+        private final int[] wide;
+        // Bytes beyond the first taken up by wide[0..k-1]
+        private final int[] extraBefore;
+        private final int offset;
+        private final int length;
+        private int cursor;
+
+        private Utf8Text( ByteBuffer bytes, int[] wide, int[] extraBefore, int offset, int length )
+        {
+            this.bytes = bytes;
+            this.wide = wide;
+            this.extraBefore = extraBefore;
+            this.offset = offset;
+            this.length = length;
+        }
+
+        // Returns null if the text can't be represented this way
+        static Utf8Text wrap( ByteBuffer bytes )
+        {
+            int[] wide = new int[64];
+            int[] extraBefore = new int[65];
+            int count = 0;
+            int extra = 0;
+            int chars = 0;
+            int limit = bytes.limit();
+            for ( int i = 0; i < limit; chars++ )
+            {
+                int b = bytes.get( i ) & 0xFF;
+                int width = b < 0x80 ? 1 : (b >> 5) == 0b110 ? 2 : (b >> 4) == 0b1110 ? 3 : 0;
+                if(width == 0 || i + width > limit) {
+                    return null;
+                }
+                if(width > 1) {
+                    for ( int c = 1; c < width; c++ )
+                    {
+                        if((bytes.get( i + c ) & 0xC0) != 0x80) {
+                            return null;
+                        }
+                    }
+                    if(count == wide.length) {
+                        wide = Arrays.copyOf( wide, count * 2 );
+                        extraBefore = Arrays.copyOf( extraBefore, count * 2 + 1 );
+                    }
+                    wide[count] = chars;
+                    extraBefore[count] = extra;
+                    count++;
+                    extra += width - 1;
+                }
+                i += width;
+            }
+            extraBefore[count] = extra;
+            return new Utf8Text( bytes, Arrays.copyOf( wide, count ), Arrays.copyOf( extraBefore, count + 1 ), 0, chars );
+        }
+
+        @Override
+        public int length()
+        {
+            return length;
+        }
+
+        @Override
+        public char charAt( int index )
+        {
+            if(index < 0 || index >= length) {
+                throw new IndexOutOfBoundsException( index );
+            }
+            int i = offset + index;
+            // k is the number of wide chars before i
+            int k = cursor;
+            if(!(k <= wide.length && (k == 0 || wide[k - 1] < i) && (k == wide.length || wide[k] >= i))) {
+                k = Arrays.binarySearch( wide, i );
+                k = k < 0 ? -k - 1 : k;
+                cursor = k;
+            }
+            int pos = i + extraBefore[k];
+            if(k < wide.length && wide[k] == i) {
+                int b = bytes.get( pos ) & 0xFF;
+                if((b >> 5) == 0b110) {
+                    return (char) (((b & 0x1F) << 6) | (bytes.get( pos + 1 ) & 0x3F));
+                }
+                return (char) (((b & 0x0F) << 12) | ((bytes.get( pos + 1 ) & 0x3F) << 6) | (bytes.get( pos + 2 ) & 0x3F));
+            }
+            return (char) bytes.get( pos );
+        }
+
+        @Override
+        public CharSequence subSequence( int start, int end )
+        {
+            if(start < 0 || end > length || start > end) {
+                throw new IndexOutOfBoundsException( start );
+            }
+            return new Utf8Text( bytes, wide, extraBefore, offset + start, end - start );
+        }
+
+        @Override
+        public String toString()
+        {
+            return new StringBuilder( length ).append( this ).toString();
+        }
+    }
+}
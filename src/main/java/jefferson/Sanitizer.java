@@ -3,7 +3,10 @@ package jefferson;
 import jefferson.analyzer.Source;
 
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.function.Consumer;
 import java.util.regex.Pattern;
 
 // Consumes a stream of lines, strips out page headers and footers, and joins line-broken sentences
@@ -12,39 +15,234 @@ public class Sanitizer
 {
     public static class Paragraph {
         public final Source source;
-        public final String contents;
+        // The paragraph text. This may be a view onto a larger buffer rather than a String, see
+        // MappedJournal; regex matching works on it directly.
+        public final CharSequence text;
+        private String contents;
 
-        public Paragraph( Source source, String contents )
+        public Paragraph( Source source, CharSequence text )
         {
             this.source = source;
-            this.contents = contents;
+            this.text = text;
+        }
+
+        // The text as a String, copied out on first use, for when String operations are needed
+        public String contents()
+        {
+            if(contents == null) {
+                contents = text.toString();
+            }
+            return contents;
         }
     }
 
+    // Paragraph iterator that can skip ahead to the next paragraph containing some text, without
+    // joining up the lines of the paragraphs it skips or building them at all.
+    public interface Skipping extends Iterator<Paragraph>
+    {
+        // The next paragraph containing needle, or null if there are no more. Lines are searched
+        // one at a time, so needle can't span the two spaces lines are joined with: it must not
+        // start or end with a space, or have two in a row.
+        Paragraph nextContaining( String needle );
+    }
+
+    // Paragraphs are produced lazily as the returned iterable is walked, pulling lines from the
+    // input as needed, so only the paragraph currently being built is held in memory.
     public Iterable<Paragraph> sanitize(String url, Iterable<String> in) {
-        List<Paragraph> out = new ArrayList<>();
+        return () -> new Skipping()
+        {
+            private final Iterator<String> lines = in.iterator();
+            private final Joiner joiner = new Joiner( url );
+            private Paragraph next;
+            private boolean ended;
+
+            @Override
+            public boolean hasNext()
+            {
+                while( next == null && !ended ) {
+                    if(lines.hasNext()) {
+                        next = joiner.line( lines.next() );
+                    } else {
+                        next = joiner.end();
+                        ended = true;
+                    }
+                }
+                return next != null;
+            }
 
-        StringBuilder current = new StringBuilder();
+            @Override
+            public Paragraph next()
+            {
+                if(!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                Paragraph out = next;
+                next = null;
+                return out;
+            }
 
-        int lineNo = 1;
-        for ( String line : in )
+            @Override
+            public Paragraph nextContaining( String needle )
+            {
+                if(next != null) {
+                    Paragraph out = next;
+                    next = null;
+                    if(contains( out.text, needle )) {
+                        return out;
+                    }
+                }
+                while( !ended ) {
+                    Paragraph out;
+                    if(lines.hasNext()) {
+                        out = joiner.line( lines.next(), needle );
+                    } else {
+                        out = joiner.end( needle );
+                        ended = true;
+                    }
+                    if(out != null) {
+                        return out;
+                    }
+                }
+                return null;
+            }
+        };
+    }
+
+    // Push based version of sanitize(..), for when lines are produced as we go, like straight out
+    // of the PDF extractor. Paragraphs are handed to the consumer as soon as they are complete.
+    public Feed feed(String url, Consumer<Paragraph> out) {
+        return new Feed( url, out );
+    }
+
+    public static class Feed implements Consumer<String> {
+        private final Joiner joiner;
+        private final Consumer<Paragraph> out;
+
+        private Feed( String url, Consumer<Paragraph> out )
         {
-            if(line.isBlank() || header.matcher( line ).matches() ) {
-                if(current.length() > 0) {
-                    out.add( new Paragraph( new Source( url, lineNo ), current.toString() ) );
-                    current = new StringBuilder();
+            this.joiner = new Joiner( url );
+            this.out = out;
+        }
+
+        @Override
+        public void accept( String line )
+        {
+            Paragraph pg = joiner.line( line );
+            if(pg != null) {
+                out.accept( pg );
+            }
+        }
+
+        // Call once all lines have been fed, to flush out the last paragraph
+        public void end()
+        {
+            Paragraph pg = joiner.end();
+            if(pg != null) {
+                out.accept( pg );
+            }
+        }
+    }
+
+    // Joins lines into paragraphs, shared by the pull and push versions above. The builder is
+    // reused between paragraphs, so the only allocation per paragraph is the paragraph itself.
+    private static class Joiner {
+        private final String url;
+        private final StringBuilder current = new StringBuilder();
+        // When skipping, lines of the current paragraph from before one containing the needle
+        private final List<String> pending = new ArrayList<>();
+        private boolean found;
+        private int lineNo = 1;
+
+        Joiner( String url )
+        {
+            this.url = url;
+        }
+
+        // Returns the paragraph this line completed, if any
+        Paragraph line( String line )
+        {
+            return line( line, null );
+        }
+
+        // Same, but if needle is not null, only returns paragraphs containing it, see Skipping.
+        // Until a line with the needle turns up, lines are just held on to rather than joined.
+        Paragraph line( String line, String needle )
+        {
+            Paragraph out = null;
+            if(line.isBlank() || isHeader( line ) ) {
+                out = flush( needle );
+            } else if(needle == null || found) {
+                current.append( line );
+                current.append( "  " );
+            } else if(line.contains( needle )) {
+                found = true;
+                for ( String earlier : pending )
+                {
+                    current.append( earlier );
+                    current.append( "  " );
                 }
-            } else {
+                pending.clear();
                 current.append( line );
                 current.append( "  " );
+            } else {
+                pending.add( line );
             }
             lineNo++;
+            return out;
+        }
+
+        Paragraph end()
+        {
+            return flush( null );
         }
 
-        if(current.length() > 0) {
-            out.add( new Paragraph( new Source( url, lineNo ), current.toString() ) );
+        Paragraph end( String needle )
+        {
+            return flush( needle );
+        }
+
+        private Paragraph flush( String needle )
+        {
+            boolean skip = needle != null && !found;
+            pending.clear();
+            found = false;
+            if(skip || current.length() == 0) {
+                current.setLength( 0 );
+                return null;
+            }
+            Paragraph out = new Paragraph( new Source( url, lineNo ), current.toString() );
+            current.setLength( 0 );
+            return out;
+        }
+    }
+
+    // Both header forms contain one of these fixed strings, so check for them before paying
+    // for the regex; almost no lines get past this.
+    static boolean isHeader( CharSequence line ) {
+        return (contains( line, "Journal of the House" ) || contains( line, " Day–" ))
+                && header.matcher( line ).matches();
+    }
+
+    static boolean contains( CharSequence haystack, String needle ) {
+        if(haystack instanceof String) {
+            return ((String) haystack).contains( needle );
+        }
+        char first = needle.charAt( 0 );
+        int last = haystack.length() - needle.length();
+        for ( int i = 0; i <= last; i++ )
+        {
+            if(haystack.charAt( i ) != first) {
+                continue;
+            }
+            int j = 1;
+            while( j < needle.length() && haystack.charAt( i + j ) == needle.charAt( j ) ) {
+                j++;
+            }
+            if(j == needle.length()) {
+                return true;
+            }
         }
-        return out;
+        return false;
     }
 
     static Pattern header = Pattern.compile("(\\s*(\\d+)\\s*Journal of the House.*)|([a-zA-Z-]+ Day–[a-zA-Z]+, [a-zA-Z]+ \\d+, \\d+\\s*\\d+\\s*)");
@@ -0,0 +1,107 @@
+package jefferson.analyzer;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jefferson.domain.Action;
+import jefferson.domain.Motion;
+import jefferson.domain.MotionTable;
+import jefferson.domain.RepTable;
+import jefferson.domain.Vote;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+// Reads back what ActionWriter wrote, in either format. Motions are interned, see MotionTable, so
+// every action about the same motion gets the same Motion instance, as they did when they were
+// analyzed. Actions read back have no source.
+public class ActionReader
+{
+    private static final Vote.Group[] GROUPS = Vote.Group.values();
+
+    public static List<Action> read( Path path, RepTable reps ) throws IOException
+    {
+        return read( path, reps, new MotionTable() );
+    }
+
+    // Votes are interned in reps, and motions in motions
+    public static List<Action> read( Path path, RepTable reps, MotionTable motions ) throws IOException
+    {
+        ObjectMapper mapper = DomainModule.mapper( reps, motions );
+        JsonNode root = mapper.readTree( path.toFile() );
+        if(root.isArray()) {
+            return mapper.convertValue( root, new TypeReference<List<Action>>() {} );
+        }
+        if(!"normalized".equals( root.path( "format" ).asText() )) {
+            throw new IOException( path + " is neither a list of actions nor in the normalized format" );
+        }
+        return readNormalized( path, root, reps, motions );
+    }
+
+    private static List<Action> readNormalized( Path path, JsonNode root, RepTable reps, MotionTable table ) throws IOException
+    {
+        JsonNode repNodes = root.path( "reps" );
+        String[] names = new String[repNodes.size()];
+        for ( int i = 0; i < names.length; i++ )
+        {
+            names[i] = repNodes.get( i ).asText();
+        }
+
+        // A motion only relates to one before it, so one pass builds them all
+        JsonNode motionNodes = root.path( "motions" );
+        Motion[] motions = new Motion[motionNodes.size()];
+        for ( int i = 0; i < motions.length; i++ )
+        {
+            JsonNode node = motionNodes.get( i );
+            Motion relatesTo = null;
+            if(node.hasNonNull( "relatesTo" )) {
+                int id = node.get( "relatesTo" ).asInt();
+                if(id < 0 || id >= i) {
+                    throw new IOException( path + ": motion " + i + " relates to motion " + id + ", which doesn't come before it" );
+                }
+                relatesTo = motions[id];
+            }
+            motions[i] = table.intern( Motion.Type.valueOf( node.path( "type" ).asText() ), node.path( "proposal" ).asText(), relatesTo );
+        }
+
+        List<Action> actions = new ArrayList<>( root.path( "actions" ).size() );
+        for ( JsonNode node : root.path( "actions" ) )
+        {
+            int motion = node.path( "motion" ).asInt( -1 );
+            if(motion < 0 || motion >= motions.length) {
+                throw new IOException( path + ": no motion " + node.get( "motion" ) + " for action " + actions.size() );
+            }
+            Vote vote = node.hasNonNull( "vote" ) ? readVote( path, node.get( "vote" ), names, reps ) : null;
+            String kind = node.path( "action" ).asText();
+            Action action = DomainModule.action( kind, motions[motion], vote );
+            if(action == null) {
+                throw new IOException( path + ": unknown kind of action: '" + kind + "'" );
+            }
+            actions.add( action );
+        }
+        return actions;
+    }
+
+    private static Vote readVote( Path path, JsonNode node, String[] names, RepTable reps ) throws IOException
+    {
+        String[][] groups = new String[GROUPS.length][];
+        for ( Vote.Group group : GROUPS )
+        {
+            JsonNode ids = node.path( group.key );
+            String[] groupNames = new String[ids.size()];
+            for ( int i = 0; i < groupNames.length; i++ )
+            {
+                int id = ids.get( i ).asInt( -1 );
+                if(id < 0 || id >= names.length) {
+                    throw new IOException( path + ": no rep " + ids.get( i ) + " in vote " + node );
+                }
+                groupNames[i] = names[id];
+            }
+            groups[group.ordinal()] = groupNames;
+        }
+        return new Vote( reps, groups[Vote.Group.AYES.ordinal()], groups[Vote.Group.NOES.ordinal()], groups[Vote.Group.ABSENT.ordinal()],
+                groups[Vote.Group.ABSENT_WITH_LEAVE.ordinal()], groups[Vote.Group.PRESENT.ordinal()] );
+    }
+}
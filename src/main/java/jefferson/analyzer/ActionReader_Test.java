@@ -0,0 +1,111 @@
+package jefferson.analyzer;
+
+import jefferson.domain.Action;
+import jefferson.domain.RepTable;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.List;
+
+public class ActionReader_Test
+{
+    public static void main(String ... argv) throws Exception
+    {
+        boolean assertsEnabled = false;
+        assert assertsEnabled = true;
+        if(!assertsEnabled) {
+            throw new AssertionError( "Assertions must be enabled to run tests." );
+        }
+
+        boolean passed = true;
+        Class<?> cls = MethodHandles.lookup().lookupClass();
+        for ( Method subject : cls.getDeclaredMethods() )
+        {
+            if( ! ( subject.getName().startsWith( "test" ) ) ) {
+                continue;
+            }
+            try {
+                subject.invoke( cls.getConstructors()[0].newInstance() );
+                System.err.printf("PASS: %s%n", subject.getName());
+            } catch( InvocationTargetException e ) {
+                if(e.getCause() != null && e.getCause() instanceof AssertionError ) {
+                    AssertionError ae = (AssertionError) e.getCause();
+                    System.err.printf("FAIL: %s: %s @ %s%n", subject.getName(), ae.getMessage(), ae.getStackTrace()[0].toString());
+                    passed = false;
+                } else {
+                    throw e;
+                }
+            }
+        }
+
+        if(!passed) {
+            System.exit( 1 );
+        }
+    }
+
+    public void testReadsBackEitherFormat() throws Exception {
+        List<Action> actions = Fixtures.hb10();
+        Path plain = Fixtures.write( actions, ActionWriter.Format.PLAIN );
+        Path normalized = Fixtures.write( actions, ActionWriter.Format.NORMALIZED );
+        try {
+            assertEq( actions, ActionReader.read( plain, new RepTable() ) );
+            assertEq( actions, ActionReader.read( normalized, new RepTable() ) );
+            assert Files.size( normalized ) < Files.size( plain ) : Files.size( normalized ) + " bytes normalized, " + Files.size( plain ) + " plain";
+        } finally {
+            Files.delete( plain );
+            Files.delete( normalized );
+        }
+    }
+
+    public void testSharesMotionsReadFromNormalizedFormat() throws Exception {
+        List<Action> actions = Fixtures.hb10();
+        Path normalized = Fixtures.write( actions, ActionWriter.Format.NORMALIZED );
+        try {
+            List<Action> read = ActionReader.read( normalized, new RepTable() );
+            for ( Action a : read )
+            {
+                for ( Action b : read )
+                {
+                    assert !a.motion().mainMotion().equals( b.motion().mainMotion() ) || a.motion().mainMotion() == b.motion().mainMotion()
+                            : "Expected one instance of " + a.motion().mainMotion();
+                }
+            }
+        } finally {
+            Files.delete( normalized );
+        }
+    }
+
+    public void testWritesWithTheOutputsPermissions() throws Exception {
+        if(!FileSystems.getDefault().supportedFileAttributeViews().contains( "posix" )) {
+            return;
+        }
+        Path dir = Files.createTempDirectory( "actions" );
+        Path existing = dir.resolve( "existing.json" );
+        Path created = dir.resolve( "created.json" );
+        try {
+            Files.createFile( existing );
+            Files.setPosixFilePermissions( existing, PosixFilePermissions.fromString( "rw-rw-r--" ) );
+            for ( Path path : List.of( existing, created ) )
+            {
+                try ( ActionWriter out = ActionWriter.open( path, true ) ) {
+                    out.write( Fixtures.hb10().get( 0 ) );
+                }
+            }
+            assertEq( "rw-rw-r--", PosixFilePermissions.toString( Files.getPosixFilePermissions( existing ) ) );
+            assertEq( "rw-r--r--", PosixFilePermissions.toString( Files.getPosixFilePermissions( created ) ) );
+        } finally {
+            Files.deleteIfExists( existing );
+            Files.deleteIfExists( created );
+            Files.delete( dir );
+        }
+    }
+
+    private void assertEq(Object expected, Object actual) {
+        assert expected.equals(actual) : String.format("Expected \n  %s \nto be \n  %s", actual, expected);
+    }
+}
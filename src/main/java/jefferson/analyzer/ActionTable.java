@@ -0,0 +1,447 @@
+package jefferson.analyzer;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import jefferson.domain.Motion;
+import jefferson.domain.MotionTable;
+import jefferson.domain.RepTable;
+import jefferson.domain.Vote;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+// A session's output loaded for querying: "actions on HB 10", "actions on amendments", "how did
+// Rone vote on this motion". The output is read token by token, in either of ActionWriter's
+// formats or as published before actions were named, into one array per field, a column, indexed
+// by action id, the action's position in the output:
+//
+//   kinds    which Analyzer action class it was, an index into KINDS, -1 if the output doesn't say
+//   motions  the motion's id in a MotionTable, which also has the bills it concerns
+//   votes    per vote group, a bitset over rep ids in a RepTable; null for actions without a vote
+//
+// Actions are also indexed by motion and by motion type when loaded, so queries look up the
+// actions they want rather than scanning for them. Each table is on its own, so any number of
+// sessions can be loaded side by side. Safe for concurrent use once loaded.
+public class ActionTable
+{
+    static final String[] KINDS = { "AdoptedByVote", "DefeatedByVote", "AdoptWithoutVote", "DefeatedWithoutVote" };
+
+    private static final Vote.Group[] GROUPS = Vote.Group.values();
+    private static final Motion.Type[] TYPES = Motion.Type.values();
+    private static final int[] NONE = new int[0];
+
+    private final RepTable reps = new RepTable();
+    private final MotionTable motionTable = new MotionTable();
+    private int size;
+    private byte[] kinds = new byte[256];
+    private int[] motions = new int[256];
+    // Indexed by Group.ordinal(), then action id
+    private final BitSet[][] votes = new BitSet[GROUPS.length][256];
+
+    // Action ids by motion id and by Type.ordinal(), in order
+    private int[][] byMotion;
+    private int[][] byType;
+
+    private ActionTable()
+    {
+    }
+
+    public static ActionTable load( Path path ) throws IOException
+    {
+        ActionTable table = new ActionTable();
+        try ( JsonParser json = new JsonFactory().createParser( path.toFile() ) ) {
+            JsonToken token = json.nextToken();
+            if(token == JsonToken.START_ARRAY) {
+                table.readActions( json, false );
+            } else if(token == JsonToken.START_OBJECT) {
+                table.readNormalized( json );
+            } else {
+                throw new IOException( path + " is neither a list of actions nor in the normalized format" );
+            }
+        }
+        table.index();
+        return table;
+    }
+
+    // The plain format, see DomainModule; or the actions of the normalized format, with motion and
+    // rep ids as they are in the file, for readNormalized(..) to translate
+    private void readActions( JsonParser json, boolean normalized ) throws IOException
+    {
+        while ( json.nextToken() == JsonToken.START_OBJECT )
+        {
+            int kind = -1;
+            int motion = -1;
+            BitSet[] vote = null;
+            while ( json.nextToken() == JsonToken.FIELD_NAME )
+            {
+                String field = json.getCurrentName();
+                json.nextToken();
+                switch( field ) {
+                case "action": kind = kind( json ); break;
+                case "motion": motion = normalized ? json.getIntValue() : readMotion( json ).id(); break;
+                case "vote": vote = json.currentToken() == JsonToken.VALUE_NULL ? null : readVote( json, normalized ); break;
+                default: json.skipChildren();
+                }
+            }
+            if(motion < 0) {
+                throw new IOException( "No motion for action " + size + " at " + json.getCurrentLocation() );
+            }
+            add( kind, motion, vote );
+        }
+    }
+
+    private void readNormalized( JsonParser json ) throws IOException
+    {
+        int[] motionIds = NONE;
+        int[] repIds = NONE;
+        while ( json.nextToken() == JsonToken.FIELD_NAME )
+        {
+            String field = json.getCurrentName();
+            json.nextToken();
+            switch( field ) {
+            case "format":
+                if(!"normalized".equals( json.getText() )) {
+                    throw new IOException( "Unknown format: '" + json.getText() + "'" );
+                }
+                break;
+            case "actions": readActions( json, true ); break;
+            case "motions": motionIds = readMotionTable( json ); break;
+            case "reps": repIds = readRepTable( json ); break;
+            default: json.skipChildren();
+            }
+        }
+
+        for ( int i = 0; i < size; i++ )
+        {
+            if(motions[i] >= motionIds.length) {
+                throw new IOException( "No motion " + motions[i] + " for action " + i );
+            }
+            motions[i] = motionIds[motions[i]];
+        }
+        // Reps are interned in the order they are listed, so their ids only differ if a name is
+        // listed twice
+        boolean same = true;
+        for ( int i = 0; i < repIds.length; i++ )
+        {
+            same &= repIds[i] == i;
+        }
+        for ( BitSet[] group : votes )
+        {
+            for ( int i = 0; i < size; i++ )
+            {
+                BitSet bits = group[i];
+                if(bits == null || (same && bits.length() <= repIds.length)) {
+                    continue;
+                }
+                BitSet translated = new BitSet();
+                for ( int id = bits.nextSetBit( 0 ); id >= 0; id = bits.nextSetBit( id + 1 ) )
+                {
+                    if(id >= repIds.length) {
+                        throw new IOException( "No rep " + id + " in vote of action " + i );
+                    }
+                    translated.set( repIds[id] );
+                }
+                group[i] = translated;
+            }
+        }
+    }
+
+    // The ids of the motions listed, by their position in the list
+    private int[] readMotionTable( JsonParser json ) throws IOException
+    {
+        int[] ids = new int[64];
+        int count = 0;
+        while ( json.nextToken() == JsonToken.START_OBJECT )
+        {
+            Motion.Type type = null;
+            String proposal = null;
+            int relatesTo = -1;
+            while ( json.nextToken() == JsonToken.FIELD_NAME )
+            {
+                String field = json.getCurrentName();
+                json.nextToken();
+                switch( field ) {
+                case "type": type = Motion.Type.valueOf( json.getText() ); break;
+                case "proposal": proposal = json.getText(); break;
+                case "relatesTo": relatesTo = json.currentToken() == JsonToken.VALUE_NULL ? -1 : json.getIntValue(); break;
+                default: json.skipChildren();
+                }
+            }
+            if(type == null || proposal == null || relatesTo >= count) {
+                throw new IOException( "Motion " + count + " is incomplete or relates to one after it" );
+            }
+            if(count == ids.length) {
+                ids = Arrays.copyOf( ids, count * 2 );
+            }
+            ids[count] = motionTable.intern( type, proposal, relatesTo < 0 ? null : motionTable.motion( ids[relatesTo] ) ).id();
+            count++;
+        }
+        return Arrays.copyOf( ids, count );
+    }
+
+    private int[] readRepTable( JsonParser json ) throws IOException
+    {
+        int[] ids = new int[256];
+        int count = 0;
+        while ( json.nextToken() == JsonToken.VALUE_STRING )
+        {
+            if(count == ids.length) {
+                ids = Arrays.copyOf( ids, count * 2 );
+            }
+            ids[count++] = reps.intern( json.getText() );
+        }
+        return Arrays.copyOf( ids, count );
+    }
+
+    private static int kind( JsonParser json ) throws IOException
+    {
+        String kind = json.getText();
+        for ( int i = 0; i < KINDS.length; i++ )
+        {
+            if(KINDS[i].equals( kind )) {
+                return i;
+            }
+        }
+        throw new IOException( "Unknown kind of action: '" + kind + "' at " + json.getCurrentLocation() );
+    }
+
+    // Fields in any order, as output from before DomainModule had them in no particular one
+    private Motion readMotion( JsonParser json ) throws IOException
+    {
+        Motion.Type type = null;
+        String proposal = null;
+        Motion relatesTo = null;
+        while ( json.nextToken() == JsonToken.FIELD_NAME )
+        {
+            String field = json.getCurrentName();
+            json.nextToken();
+            switch( field ) {
+            case "type": type = Motion.Type.valueOf( json.getText() ); break;
+            case "proposal": proposal = json.getText(); break;
+            case "relatesTo": relatesTo = json.currentToken() == JsonToken.VALUE_NULL ? null : readMotion( json ); break;
+            default: json.skipChildren();
+            }
+        }
+        if(type == null || proposal == null) {
+            throw new IOException( "Incomplete motion at " + json.getCurrentLocation() );
+        }
+        return motionTable.intern( type, proposal, relatesTo );
+    }
+
+    // Groups of names, or in the normalized format of rep ids
+    private BitSet[] readVote( JsonParser json, boolean normalized ) throws IOException
+    {
+        BitSet[] vote = new BitSet[GROUPS.length];
+        while ( json.nextToken() == JsonToken.FIELD_NAME )
+        {
+            Vote.Group group = group( json.getCurrentName() );
+            json.nextToken();
+            if(group == null) {
+                json.skipChildren();
+                continue;
+            }
+            BitSet bits = new BitSet();
+            while ( json.nextToken() != JsonToken.END_ARRAY )
+            {
+                bits.set( normalized ? json.getIntValue() : reps.intern( json.getText() ) );
+            }
+            vote[group.ordinal()] = bits;
+        }
+        for ( int i = 0; i < vote.length; i++ )
+        {
+            if(vote[i] == null) {
+                vote[i] = new BitSet();
+            }
+        }
+        return vote;
+    }
+
+    private static Vote.Group group( String key )
+    {
+        for ( Vote.Group group : GROUPS )
+        {
+            if(group.key.equals( key )) {
+                return group;
+            }
+        }
+        return null;
+    }
+
+    private void add( int kind, int motion, BitSet[] vote )
+    {
+        if(size == motions.length) {
+            kinds = Arrays.copyOf( kinds, size * 2 );
+            motions = Arrays.copyOf( motions, size * 2 );
+            for ( int g = 0; g < votes.length; g++ )
+            {
+                votes[g] = Arrays.copyOf( votes[g], size * 2 );
+            }
+        }
+        kinds[size] = (byte) kind;
+        motions[size] = motion;
+        for ( int g = 0; g < votes.length; g++ )
+        {
+            votes[g][size] = vote == null ? null : vote[g];
+        }
+        size++;
+    }
+
+    // Group action ids by motion and by motion type, counting first so each list is one array
+    private void index()
+    {
+        int[] perMotion = new int[motionTable.size()];
+        int[] perType = new int[TYPES.length];
+        for ( int i = 0; i < size; i++ )
+        {
+            perMotion[motions[i]]++;
+            perType[motionTable.motion( motions[i] ).type.ordinal()]++;
+        }
+        byMotion = new int[perMotion.length][];
+        byType = new int[perType.length][];
+        for ( int m = 0; m < perMotion.length; m++ )
+        {
+            byMotion[m] = new int[perMotion[m]];
+            perMotion[m] = 0;
+        }
+        for ( int t = 0; t < perType.length; t++ )
+        {
+            byType[t] = new int[perType[t]];
+            perType[t] = 0;
+        }
+        for ( int i = 0; i < size; i++ )
+        {
+            byMotion[motions[i]][perMotion[motions[i]]++] = i;
+            int type = motionTable.motion( motions[i] ).type.ordinal();
+            byType[type][perType[type]++] = i;
+        }
+    }
+
+    // Number of actions
+    public int size()
+    {
+        return size;
+    }
+
+    // Name of the Analyzer action class, like "AdoptedByVote"; null if the output didn't say
+    public String kind( int action )
+    {
+        return kinds[action] < 0 ? null : KINDS[kinds[action]];
+    }
+
+    public Motion motion( int action )
+    {
+        return motionTable.motion( motions[action] );
+    }
+
+    // The motions of the session, see MotionTable.concerning(..) for those about a bill
+    public MotionTable motions()
+    {
+        return motionTable;
+    }
+
+    public boolean hasVote( int action )
+    {
+        return votes[0][action] != null;
+    }
+
+    // The action's vote, null if it had none
+    public Vote vote( int action )
+    {
+        if(!hasVote( action )) {
+            return null;
+        }
+        String[][] names = new String[GROUPS.length][];
+        for ( Vote.Group group : GROUPS )
+        {
+            BitSet bits = votes[group.ordinal()][action];
+            String[] groupNames = new String[bits.cardinality()];
+            int n = 0;
+            for ( int id = bits.nextSetBit( 0 ); id >= 0; id = bits.nextSetBit( id + 1 ) )
+            {
+                groupNames[n++] = reps.name( id );
+            }
+            names[group.ordinal()] = groupNames;
+        }
+        return new Vote( reps, names[Vote.Group.AYES.ordinal()], names[Vote.Group.NOES.ordinal()], names[Vote.Group.ABSENT.ordinal()],
+                names[Vote.Group.ABSENT_WITH_LEAVE.ordinal()], names[Vote.Group.PRESENT.ordinal()] );
+    }
+
+    // Number of reps in the group in the action's vote; 0 if it had none
+    public int count( int action, Vote.Group group )
+    {
+        BitSet bits = votes[group.ordinal()][action];
+        return bits == null ? 0 : bits.cardinality();
+    }
+
+    // How the rep voted, matching names the way Names.normalize(..) does; null if they didn't, or
+    // there was no vote
+    public Vote.Group voteOf( String rep, int action )
+    {
+        if(!hasVote( action )) {
+            return null;
+        }
+        for ( int id : reps.idsOf( rep ) )
+        {
+            for ( Vote.Group group : GROUPS )
+            {
+                if(votes[group.ordinal()][action].get( id )) {
+                    return group;
+                }
+            }
+        }
+        return null;
+    }
+
+    // How the rep voted each time the motion was voted on, in order
+    public List<Vote.Group> votesOn( String rep, Motion motion )
+    {
+        int[] actions = actionsAbout( motion );
+        Vote.Group[] out = new Vote.Group[actions.length];
+        int n = 0;
+        for ( int action : actions )
+        {
+            if(hasVote( action )) {
+                out[n++] = voteOf( rep, action );
+            }
+        }
+        return Arrays.asList( Arrays.copyOf( out, n ) );
+    }
+
+    // Ids of the actions on the motion, in order; the motion need not be from this table
+    public int[] actionsAbout( Motion motion )
+    {
+        Motion ours = motionTable.find( motion );
+        return ours == null ? NONE : byMotion[ours.id()].clone();
+    }
+
+    // Ids of the actions on motions of the type, in order, like actionsOf( Motion.Type.AMEND )
+    public int[] actionsOf( Motion.Type type )
+    {
+        return byType[type.ordinal()].clone();
+    }
+
+    // Ids of the actions on a bill, in order, like actionsOn( "HB 10" ); as with SessionIndex, that
+    // includes actions on amendments and other motions relating to the bill
+    public int[] actionsOn( String bill )
+    {
+        List<Motion> concerning = motionTable.concerning( bill );
+        int count = 0;
+        for ( Motion motion : concerning )
+        {
+            count += byMotion[motion.id()].length;
+        }
+        int[] out = new int[count];
+        int n = 0;
+        for ( Motion motion : concerning )
+        {
+            System.arraycopy( byMotion[motion.id()], 0, out, n, byMotion[motion.id()].length );
+            n += byMotion[motion.id()].length;
+        }
+        Arrays.sort( out );
+        return out;
+    }
+}
@@ -0,0 +1,131 @@
+package jefferson.analyzer;
+
+import jefferson.domain.Action;
+import jefferson.domain.Motion;
+import jefferson.domain.Vote;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+public class ActionTable_Test
+{
+    public static void main(String ... argv) throws Exception
+    {
+        boolean assertsEnabled = false;
+        assert assertsEnabled = true;
+        if(!assertsEnabled) {
+            throw new AssertionError( "Assertions must be enabled to run tests." );
+        }
+
+        boolean passed = true;
+        Class<?> cls = MethodHandles.lookup().lookupClass();
+        for ( Method subject : cls.getDeclaredMethods() )
+        {
+            if( ! ( subject.getName().startsWith( "test" ) ) ) {
+                continue;
+            }
+            try {
+                subject.invoke( cls.getConstructors()[0].newInstance() );
+                System.err.printf("PASS: %s%n", subject.getName());
+            } catch( InvocationTargetException e ) {
+                if(e.getCause() != null && e.getCause() instanceof AssertionError ) {
+                    AssertionError ae = (AssertionError) e.getCause();
+                    System.err.printf("FAIL: %s: %s @ %s%n", subject.getName(), ae.getMessage(), ae.getStackTrace()[0].toString());
+                    passed = false;
+                } else {
+                    throw e;
+                }
+            }
+        }
+
+        if(!passed) {
+            System.exit( 1 );
+        }
+    }
+
+    public void testAnswersQueriesInEitherFormat() throws Exception {
+        List<Action> actions = Fixtures.hb10();
+        SessionIndex index = new SessionIndex();
+        for ( int i = 0; i < actions.size(); i++ )
+        {
+            index.add( i, actions.get( i ) );
+        }
+
+        for ( ActionWriter.Format format : ActionWriter.Format.values() )
+        {
+            Path file = Fixtures.write( actions, format );
+            try {
+                ActionTable table = ActionTable.load( file );
+
+                assertEq( actions.size(), table.size() );
+                for ( int i = 0; i < actions.size(); i++ )
+                {
+                    Action action = actions.get( i );
+                    assertEq( action.getClass().getSimpleName(), table.kind( i ) );
+                    assertEq( action.motion(), table.motion( i ) );
+                    assert action.vote() == null ? table.vote( i ) == null : action.vote().equals( table.vote( i ) ) : "Vote of action " + i;
+                    if(action.vote() != null) {
+                        for ( String rep : index.reps() )
+                        {
+                            assert action.vote().voteOfRep( rep ) == table.voteOf( rep, i ) : rep + " in action " + i;
+                        }
+                    }
+                }
+                assertEq( Arrays.toString( index.actionsOn( "HB 10" ) ), Arrays.toString( table.actionsOn( "HB 10" ) ) );
+                assertEq( 0, table.actionsOn( "HB 11" ).length );
+
+                int amendments = 0;
+                for ( Action action : actions )
+                {
+                    amendments += action.motion().type == Motion.Type.AMEND ? 1 : 0;
+                }
+                assertEq( amendments, table.actionsOf( Motion.Type.AMEND ).length );
+                for ( int i : table.actionsAbout( actions.get( 0 ).motion() ) )
+                {
+                    assertEq( actions.get( 0 ).motion(), table.motion( i ) );
+                }
+            } finally {
+                Files.delete( file );
+            }
+        }
+    }
+
+    public void testReadsOutputPublishedBeforeActionsWereNamed() throws Exception {
+        Path file = Files.createTempFile( "actions", ".json" );
+        try {
+            Files.writeString( file, "[ {\n" +
+                    "  \"motion\" : { \"proposal\" : \"move the previous question\", \"type\" : \"END_DEBATE\",\n" +
+                    "    \"relatesTo\" : { \"proposal\" : \"SS HCS HB 677\", \"type\" : \"MAIN_MOTION\" } },\n" +
+                    "  \"vote\" : { \"absentWithLeave\" : [ \"Dohrman\" ], \"absent\" : [ ], \"ayes\" : [ \"Neely\", \"Kelly 141\" ],\n" +
+                    "    \"noes\" : [ \"Rone\" ], \"present\" : [ ] }\n" +
+                    "}, {\n" +
+                    "  \"motion\" : { \"proposal\" : \"SS HCS HB 677\", \"type\" : \"MAIN_MOTION\" }\n" +
+                    "} ]\n" );
+            ActionTable table = ActionTable.load( file );
+
+            assertEq( 2, table.size() );
+            assert table.kind( 0 ) == null;
+            Motion bill = new Motion( Motion.Type.MAIN_MOTION, "SS HCS HB 677", null );
+            assertEq( new Motion( Motion.Type.END_DEBATE, "move the previous question", bill ), table.motion( 0 ) );
+            assert table.motion( 0 ).relatesTo == table.motion( 1 );
+            assertEq( Vote.Group.AYES, table.voteOf( "kelly 141", 0 ) );
+            assertEq( Vote.Group.ABSENT_WITH_LEAVE, table.voteOf( "Dohrman", 0 ) );
+            assertEq( 2, table.count( 0, Vote.Group.AYES ) );
+            assert table.voteOf( "Rone", 1 ) == null;
+            assertEq( "[0, 1]", Arrays.toString( table.actionsOn( "HB 677" ) ) );
+            assertEq( "[1]", Arrays.toString( table.actionsAbout( bill ) ) );
+            assertEq( List.of( Vote.Group.NOES ), table.votesOn( "Rone", table.motion( 0 ) ) );
+        } finally {
+            Files.delete( file );
+        }
+    }
+
+    private void assertEq(Object expected, Object actual) {
+        assert expected.equals(actual) : String.format("Expected \n  %s \nto be \n  %s", actual, expected);
+    }
+}
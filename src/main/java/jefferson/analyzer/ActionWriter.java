@@ -0,0 +1,226 @@
+package jefferson.analyzer;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import jefferson.domain.Action;
+import jefferson.domain.Motion;
+import jefferson.domain.Vote;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Writes a session's actions out as JSON, each action as soon as it is handed over, so the output
+// is never held in memory as a whole. Read it back with ActionReader.
+//
+// Written to a file, the output goes to a temp file next to it, moved into place by close(), so a
+// run that fails leaves whatever was there before. Written to stdout, it is just cut short.
+public class ActionWriter implements AutoCloseable
+{
+    public enum Format
+    {
+        // One array of actions, each written out in full, see DomainModule
+        PLAIN,
+        // Each motion and rep name written once, in tables that actions refer to by index:
+        //
+        //   {"format": "normalized",
+        //    "actions": [{"action": "DefeatedByVote", "motion": 1, "vote": {"ayes": [0, 4, ..], "noes": [..], ..}}, ..],
+        //    "motions": [{"type": "MAIN_MOTION", "proposal": "HCS HB 10"}, {"type": "AMEND", .., "relatesTo": 0}, ..],
+        //    "reps": ["Bangert", "Baringer", ..]}
+        //
+        // Ids are given in the order motions and reps first turn up in the actions, so actions can
+        // still be written as they come and the tables go last. A motion comes after the one it
+        // relates to. Vote ids are sorted, and empty groups left out.
+        NORMALIZED
+    }
+
+    private static final Vote.Group[] GROUPS = Vote.Group.values();
+
+    private final JsonGenerator json;
+    private final Format format;
+    // Null when writing to stdout
+    private final Path target;
+    private final Path tmp;
+    private int written;
+    private boolean closed;
+
+    // Tables for the normalized format
+    private final Map<Motion, Integer> motionIds = new HashMap<>();
+    private final List<Motion> motions = new ArrayList<>();
+    private final Map<String, Integer> repIds = new HashMap<>();
+    private final List<String> reps = new ArrayList<>();
+
+    private ActionWriter( JsonGenerator json, Format format, Path target, Path tmp ) throws IOException
+    {
+        this.json = json;
+        this.format = format;
+        this.target = target;
+        this.tmp = tmp;
+        if(format == Format.NORMALIZED) {
+            json.writeStartObject();
+            json.writeStringField( "format", "normalized" );
+            json.writeFieldName( "actions" );
+        }
+        json.writeStartArray();
+    }
+
+    // To the file at path, or to stdout if path is null; pretty printed unless compact
+    public static ActionWriter open( Path path, boolean compact ) throws IOException
+    {
+        return open( path, compact, Format.PLAIN );
+    }
+
+    public static ActionWriter open( Path path, boolean compact, Format format ) throws IOException
+    {
+        Path tmp = null;
+        OutputStream out = System.out;
+        if(path != null) {
+            tmp = Strip.tempFileFor( path );
+            out = Files.newOutputStream( tmp );
+        }
+        JsonGenerator json = new JsonFactory().createGenerator( out );
+        if(path == null) {
+            json.disable( JsonGenerator.Feature.AUTO_CLOSE_TARGET );
+        }
+        if(!compact) {
+            json.useDefaultPrettyPrinter();
+        }
+        return new ActionWriter( json, format, path, tmp );
+    }
+
+    public void write( Action action ) throws IOException
+    {
+        if(format == Format.PLAIN) {
+            DomainModule.writeAction( json, action );
+        } else {
+            writeNormalized( action );
+        }
+        written++;
+    }
+
+    private void writeNormalized( Action action ) throws IOException
+    {
+        json.writeStartObject();
+        json.writeStringField( "action", DomainModule.kind( action ) );
+        json.writeNumberField( "motion", motionId( action.motion() ) );
+        Vote vote = action.vote();
+        if(vote != null) {
+            json.writeObjectFieldStart( "vote" );
+            for ( Vote.Group group : GROUPS )
+            {
+                int[] ids = new int[vote.names( group ).size()];
+                if(ids.length == 0) {
+                    continue;
+                }
+                int i = 0;
+                for ( String name : vote.names( group ) )
+                {
+                    ids[i++] = repId( name );
+                }
+                Arrays.sort( ids );
+                json.writeFieldName( group.key );
+                json.writeArray( ids, 0, ids.length );
+            }
+            json.writeEndObject();
+        }
+        json.writeEndObject();
+    }
+
+    // Id of the motion, giving it and what it relates to ids if they have none yet
+    private int motionId( Motion motion )
+    {
+        Integer id = motionIds.get( motion );
+        if(id == null) {
+            if(motion.relatesTo != null) {
+                motionId( motion.relatesTo );
+            }
+            id = motions.size();
+            motions.add( motion );
+            motionIds.put( motion, id );
+        }
+        return id;
+    }
+
+    private int repId( String name )
+    {
+        Integer id = repIds.get( name );
+        if(id == null) {
+            id = reps.size();
+            reps.add( name );
+            repIds.put( name, id );
+        }
+        return id;
+    }
+
+    // Number of actions written so far
+    public int written()
+    {
+        return written;
+    }
+
+    // Finish the output, and if writing to a file, move it into place
+    @Override
+    public void close() throws IOException
+    {
+        if(closed) {
+            return;
+        }
+        closed = true;
+        json.writeEndArray();
+        if(format == Format.NORMALIZED) {
+            writeTables();
+        }
+        json.writeRaw( '\n' );
+        json.close();
+        if(target != null) {
+            Files.move( tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE );
+        }
+        System.out.flush();
+    }
+
+    private void writeTables() throws IOException
+    {
+        json.writeArrayFieldStart( "motions" );
+        for ( Motion motion : motions )
+        {
+            json.writeStartObject();
+            json.writeStringField( "type", motion.type.name() );
+            json.writeStringField( "proposal", motion.proposal );
+            if(motion.relatesTo != null) {
+                json.writeNumberField( "relatesTo", motionIds.get( motion.relatesTo ) );
+            }
+            json.writeEndObject();
+        }
+        json.writeEndArray();
+        json.writeArrayFieldStart( "reps" );
+        for ( String rep : reps )
+        {
+            json.writeString( rep );
+        }
+        json.writeEndArray();
+        json.writeEndObject();
+    }
+
+    // Give up on the output; a file being written is left as it was. After close(), this only
+    // cleans up the temp file, if close() failed before moving it into place.
+    public void abort() throws IOException
+    {
+        if(!closed) {
+            closed = true;
+            json.flush();
+            if(tmp != null) {
+                json.close();
+            }
+        }
+        if(tmp != null) {
+            Files.deleteIfExists( tmp );
+        }
+    }
+}
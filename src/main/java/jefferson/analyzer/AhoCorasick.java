@@ -0,0 +1,191 @@
+package jefferson.analyzer;
+
+import jefferson.domain.Names;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.List;
+
+// Finds every occurrence of a fixed set of strings in a text, in a single pass over the text,
+// no matter how many strings there are. See https://en.wikipedia.org/wiki/Aho-Corasick_algorithm
+class AhoCorasick
+{
+    interface Matches
+    {
+        // Pattern number pattern was found at text[start..end)
+        void found( int pattern, int start, int end );
+    }
+
+    private final String[] patterns;
+    private final boolean foldNames;
+    private final int longest;
+
+    // The trie, one entry per node; node 0 is the root. Each node's edges are kept as parallel
+    // arrays of characters and target nodes, which for our small alphabets beats hashing.
+    private char[][] edgeChars;
+    private int[][] edgeTargets;
+    private int[] edgeCounts;
+    private int[] fail;
+    // Patterns ending at each node, including ones ending at nodes reachable through fail links
+    private int[][] outputs;
+    private int nodes;
+
+    // With foldNames, text and patterns are compared the way rep names are, see Names.normalize(..):
+    // ignoring case and which kind of apostrophe is used, and with any run of whitespace in the
+    // text matching a single space, as it does when a name is split over two joined lines
+    AhoCorasick( List<String> patterns, boolean foldNames )
+    {
+        this.patterns = patterns.toArray( new String[0] );
+        this.foldNames = foldNames;
+
+        int capacity = 1;
+        int longest = 0;
+        for ( String pattern : this.patterns )
+        {
+            capacity += pattern.length();
+            longest = Math.max( longest, pattern.length() );
+        }
+        this.longest = longest;
+        edgeChars = new char[capacity][];
+        edgeTargets = new int[capacity][];
+        edgeCounts = new int[capacity];
+        fail = new int[capacity];
+        outputs = new int[capacity][];
+        nodes = 1;
+
+        for ( int p = 0; p < this.patterns.length; p++ )
+        {
+            String pattern = this.patterns[p];
+            if(pattern.isEmpty()) {
+                throw new IllegalArgumentException( "Can't search for the empty string" );
+            }
+            int node = 0;
+            for ( int i = 0; i < pattern.length(); i++ )
+            {
+                char c = fold( pattern.charAt( i ) );
+                int next = edge( node, c );
+                if(next == -1) {
+                    next = nodes++;
+                    addEdge( node, c, next );
+                }
+                node = next;
+            }
+            outputs[node] = append( outputs[node], p );
+        }
+
+        // Breadth first, so a node's fail target is always done before the node itself
+        ArrayDeque<Integer> queue = new ArrayDeque<>();
+        for ( int e = 0; e < edgeCounts[0]; e++ )
+        {
+            queue.add( edgeTargets[0][e] );
+        }
+        while( !queue.isEmpty() ) {
+            int node = queue.poll();
+            for ( int e = 0; e < edgeCounts[node]; e++ )
+            {
+                char c = edgeChars[node][e];
+                int child = edgeTargets[node][e];
+                int f = fail[node];
+                while( f != 0 && edge( f, c ) == -1 ) {
+                    f = fail[f];
+                }
+                int target = edge( f, c );
+                fail[child] = target == -1 || target == child ? 0 : target;
+                if(outputs[fail[child]] != null) {
+                    for ( int p : outputs[fail[child]] )
+                    {
+                        outputs[child] = append( outputs[child], p );
+                    }
+                }
+                queue.add( child );
+            }
+        }
+    }
+
+    int size()
+    {
+        return patterns.length;
+    }
+
+    String pattern( int id )
+    {
+        return patterns[id];
+    }
+
+    // Reports every match, overlapping ones included, in order of where they end. Matches are
+    // reported with where they are in the text, so with foldNames one may be longer than its
+    // pattern, if the text has more whitespace in it.
+    void scan( CharSequence text, Matches matches )
+    {
+        // Where in the text each of the last chars stepped through the trie were, as whitespace
+        // runs are stepped through as one char
+        int[] positions = new int[Math.max( 1, longest )];
+        int stepped = 0;
+        int node = 0;
+        for ( int i = 0; i < text.length(); i++ )
+        {
+            char c = fold( text.charAt( i ) );
+            if(c == ' ' && foldNames && i > 0 && fold( text.charAt( i - 1 ) ) == ' ') {
+                continue;
+            }
+            positions[stepped++ % positions.length] = i;
+            int next = edge( node, c );
+            while( next == -1 && node != 0 ) {
+                node = fail[node];
+                next = edge( node, c );
+            }
+            node = next == -1 ? 0 : next;
+            if(outputs[node] != null) {
+                for ( int p : outputs[node] )
+                {
+                    matches.found( p, positions[(stepped - patterns[p].length()) % positions.length], i + 1 );
+                }
+            }
+        }
+    }
+
+    private char fold( char c )
+    {
+        if(!foldNames) {
+            return c;
+        }
+        return Character.isWhitespace( c ) ? ' ' : Names.fold( c );
+    }
+
+    private int edge( int node, char c )
+    {
+        char[] chars = edgeChars[node];
+        for ( int e = 0; e < edgeCounts[node]; e++ )
+        {
+            if(chars[e] == c) {
+                return edgeTargets[node][e];
+            }
+        }
+        return -1;
+    }
+
+    private void addEdge( int node, char c, int target )
+    {
+        int count = edgeCounts[node];
+        if(edgeChars[node] == null) {
+            edgeChars[node] = new char[2];
+            edgeTargets[node] = new int[2];
+        } else if(count == edgeChars[node].length) {
+            edgeChars[node] = Arrays.copyOf( edgeChars[node], count * 2 );
+            edgeTargets[node] = Arrays.copyOf( edgeTargets[node], count * 2 );
+        }
+        edgeChars[node][count] = c;
+        edgeTargets[node][count] = target;
+        edgeCounts[node] = count + 1;
+    }
+
+    private static int[] append( int[] ids, int id )
+    {
+        if(ids == null) {
+            return new int[]{ id };
+        }
+        int[] out = Arrays.copyOf( ids, ids.length + 1 );
+        out[ids.length] = id;
+        return out;
+    }
+}
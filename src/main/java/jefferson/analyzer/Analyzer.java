@@ -4,34 +4,84 @@ import jefferson.Sanitizer;
 import jefferson.Sanitizer.Paragraph;
 import jefferson.domain.Action;
 import jefferson.domain.Motion;
+import jefferson.domain.MotionTable;
+import jefferson.domain.RepTable;
 import jefferson.domain.Vote;
 
 import java.util.ArrayList;
-import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 public class Analyzer
 {
-    private final VoteParser voteParser = new VoteParser();
+    // Bump this when changing how journals are analyzed in a way that doesn't show in Patterns, so
+    // actions cached by older versions are not used, see JournalCache
+    static final int VERSION = 1;
+
+    private final VoteParser voteParser;
+    // The session's motions, see Session, so a motion found again is the same one
+    private final MotionTable motions;
     private List<Action> out;
     private Motion mainMotion;
     private Motion activeMotion;
     private State postVoteState;
+    private State state;
+    // Where errors go in tolerant mode; if null, they are thrown
+    private final ErrorReport errors;
+    // When analyzing a segment, the paragraph starting the next one, see analyzeSegmented(..)
+    private Paragraph next;
+
+    // Matchers for Patterns, reused from paragraph to paragraph; see match(..)
+    private final Matcher[] matchers = new Matcher[Patterns.keywords.size()];
+    private Paragraph scanned;
+    private long keywordsFound;
+    private long paragraphs;
+
+    public Analyzer()
+    {
+        this( new Roster() );
+    }
+
+    // Analyzers sharing a roster share the rep names they learn, see Roster
+    public Analyzer( Roster roster )
+    {
+        this( roster, null );
+    }
+
+    // A tolerant analyzer: rather than throwing when a paragraph doesn't make sense, it records the
+    // error in errors, drops whatever motion it was in the middle of, and carries on from the next
+    // bill taken up. Actions found before the error are kept.
+    public Analyzer( Roster roster, ErrorReport errors )
+    {
+        this( new Session(), roster, errors );
+    }
+
+    // Analyzers of the same session share its reps and motions, see Session
+    public Analyzer( Session session, Roster roster, ErrorReport errors )
+    {
+        this.voteParser = new VoteParser( session.reps(), roster );
+        this.motions = session.motions();
+        this.errors = errors;
+    }
 
     enum State {
         NEXT_MOTION {
             @Override
             State analyze( Analyzer ctx, Paragraph pg )
             {
-                Matcher takenUp = Patterns.takenUp.matcher( pg.contents );
-                if(takenUp.matches()) {
+                Matcher takenUp = ctx.match( Patterns.takenUp, pg );
+                if(takenUp != null) {
                     String bill = takenUp.group( 1 );
                     String rep = takenUp.group( 2 );
-                    System.err.printf("%s taken up by %s%n", bill, rep );
-                    ctx.mainMotion = new Motion( Motion.Type.MAIN_MOTION, bill, null );
+                    Trace.debug( "taken-up", "%s taken up by %s", bill, rep );
+                    ctx.mainMotion = ctx.motions.intern( Motion.Type.MAIN_MOTION, bill, null );
                     ctx.activeMotion = ctx.mainMotion;
                     return IN_MOTION;
                 }
@@ -47,14 +97,14 @@ public class Analyzer
                     throw new RuntimeException( "Can't be IN_MOTION, there is no activeMotion set" );
                 }
 
-                Matcher takenUp = Patterns.takenUp.matcher( pg.contents );
-                if(takenUp.matches()) {
+                Matcher takenUp = ctx.match( Patterns.takenUp, pg );
+                if(takenUp != null) {
                     throw new RuntimeException( "Can't be taken up, there is an active main motion already?" );
                 }
 
-                Matcher laidOver = Patterns.laidOver.matcher( pg.contents );
-                if(laidOver.matches()) {
-                    System.err.printf("%s was laid over%n", ctx.activeMotion.proposal);
+                Matcher laidOver = ctx.match( Patterns.laidOver, pg );
+                if(laidOver != null) {
+                    Trace.debug( "laid-over", "%s was laid over", ctx.activeMotion.proposal );
                     if(ctx.activeMotion != ctx.mainMotion) {
                         throw new RuntimeException( String.format("Can non-main motions be laid over? At %s", pg.toString() ));
                     }
@@ -63,9 +113,9 @@ public class Analyzer
                     return NEXT_MOTION;
                 }
 
-                Matcher placedOnInformalCalendar = Patterns.placedOnInformalCalendar.matcher( pg.contents );
-                if(placedOnInformalCalendar.matches()) {
-                    System.err.printf("%s was placed on informal calendar%n", ctx.activeMotion.proposal);
+                Matcher placedOnInformalCalendar = ctx.match( Patterns.placedOnInformalCalendar, pg );
+                if(placedOnInformalCalendar != null) {
+                    Trace.debug( "informal-calendar", "%s was placed on informal calendar", ctx.activeMotion.proposal );
                     if(ctx.activeMotion != ctx.mainMotion) {
                         throw new RuntimeException( String.format("Can non-main motions be put on calendar? At %s", pg.toString() ));
                     }
@@ -74,9 +124,9 @@ public class Analyzer
                     return NEXT_MOTION;
                 }
 
-                Matcher referredToCommittee = Patterns.referredToCommittee.matcher( pg.contents );
-                if(referredToCommittee.matches()) {
-                    System.err.printf("%s was referred to committee%n", ctx.activeMotion);
+                Matcher referredToCommittee = ctx.match( Patterns.referredToCommittee, pg );
+                if(referredToCommittee != null) {
+                    Trace.debug( "referred", "%s was referred to committee", ctx.activeMotion );
                     if(ctx.activeMotion != ctx.mainMotion) {
                         throw new RuntimeException( String.format("Can non-main motions be referred to committee? At %s", pg.toString() ));
                     }
@@ -85,29 +135,29 @@ public class Analyzer
                     return NEXT_MOTION;
                 }
 
-                Matcher amendmentAdoptedByVote = Patterns.amendmentAdoptedByVote.matcher( pg.contents );
-                if(amendmentAdoptedByVote.matches()) {
+                Matcher amendmentAdoptedByVote = ctx.match( Patterns.amendmentAdoptedByVote, pg );
+                if(amendmentAdoptedByVote != null) {
                     String amendmentNo = amendmentAdoptedByVote.group( 2 );
-                    ctx.activeMotion = new Motion( Motion.Type.AMEND, String.format( "House Amendment %s of %s", amendmentNo, ctx.activeMotion.proposal ), ctx.activeMotion );
+                    ctx.activeMotion = ctx.motions.intern( Motion.Type.AMEND, String.format( "House Amendment %s of %s", amendmentNo, ctx.activeMotion.proposal ), ctx.activeMotion );
                     ctx.voteParser.newVote();
                     ctx.postVoteState = POST_ADOPT_VOTE;
                     return IN_VOTE;
                 }
 
-                Matcher amendmentAdopted = Patterns.amendmentAdopted.matcher( pg.contents );
-                if(amendmentAdopted.matches()) {
+                Matcher amendmentAdopted = ctx.match( Patterns.amendmentAdopted, pg );
+                if(amendmentAdopted != null) {
                     String rep = amendmentAdopted.group( 1 );
                     String amendmentNo = amendmentAdopted.group( 2 );
-                    Motion motion = new Motion( Motion.Type.AMEND,
+                    Motion motion = ctx.motions.intern( Motion.Type.AMEND,
                             String.format( "House Amendment %s of %s", amendmentNo, ctx.activeMotion.proposal ),
                             ctx.activeMotion );
-                    System.err.printf("%s from %s adopted%n", motion.proposal, rep );
+                    Trace.debug( "amendment-adopted", "%s from %s adopted", motion.proposal, rep );
                     ctx.addAction( new AdoptWithoutVote( motion, pg.source ) );
                     return IN_MOTION;
                 }
 
-                Matcher billAdopted = Patterns.billAdopted.matcher( pg.contents );
-                if(billAdopted.matches()) {
+                Matcher billAdopted = ctx.match( Patterns.billAdopted, pg );
+                if(billAdopted != null) {
                     // TODO ensure we're talking about the right bill..
                     ctx.addAction( new AdoptWithoutVote( ctx.mainMotion, pg.source ) );
                     ctx.mainMotion = null;
@@ -115,16 +165,16 @@ public class Analyzer
                     return NEXT_MOTION;
                 }
 
-                Matcher billOrderedPerfected = Patterns.billOrderedPerfected.matcher( pg.contents );
-                if(billOrderedPerfected.matches()) {
+                Matcher billOrderedPerfected = ctx.match( Patterns.billOrderedPerfected, pg );
+                if(billOrderedPerfected != null) {
                     // TODO So it seems they can pull a bill up that's in some unknown state and just ask for this?
                     ctx.mainMotion = null;
                     ctx.activeMotion = null;
                     return NEXT_MOTION;
                 }
 
-                Matcher billAdoptedByVote = Patterns.billAdoptedByVote.matcher( pg.contents );
-                if(billAdoptedByVote.matches()) {
+                Matcher billAdoptedByVote = ctx.match( Patterns.billAdoptedByVote, pg );
+                if(billAdoptedByVote != null) {
                     String rep = billAdoptedByVote.group( 1 );
                     String bill = billAdoptedByVote.group( 2 );
                     if(!ctx.mainMotion.proposal.toLowerCase().contains( bill.toLowerCase().trim() )) {
@@ -135,8 +185,8 @@ public class Analyzer
                     return IN_VOTE;
                 }
 
-                Matcher billPassedByVote = Patterns.billPassedByVote.matcher( pg.contents );
-                if(billPassedByVote.matches()) {
+                Matcher billPassedByVote = ctx.match( Patterns.billPassedByVote, pg );
+                if(billPassedByVote != null) {
                     String rep = billPassedByVote.group( 1 );
                     String bill = billPassedByVote.group( 2 );
                     // TODO we are missing bill names when the "taken up" entry is split across pages
@@ -150,110 +200,110 @@ public class Analyzer
                     return IN_VOTE;
                 }
 
-                Matcher motionDefeated = Patterns.motionDefeated.matcher( pg.contents );
-                if(motionDefeated.matches()) {
+                Matcher motionDefeated = ctx.match( Patterns.motionDefeated, pg );
+                if(motionDefeated != null) {
                     ctx.addAction( new DefeatedWithoutVote( ctx.activeMotion, pg.source ) );
                     ctx.activeMotion = ctx.activeMotion.relatesTo;
                     return IN_MOTION;
                 }
 
-                Matcher motionAdopted = Patterns.motionAdopted.matcher( pg.contents );
-                if(motionAdopted.matches()) {
+                Matcher motionAdopted = ctx.match( Patterns.motionAdopted, pg );
+                if(motionAdopted != null) {
                     ctx.addAction( new AdoptWithoutVote( ctx.activeMotion, pg.source ) );
                     return this.handleMotionAdopted(ctx, pg);
                 }
 
-                Matcher motionDefeatedByVote = Patterns.motionDefeatedByVote.matcher( pg.contents );
-                if(motionDefeatedByVote.matches()) {
+                Matcher motionDefeatedByVote = ctx.match( Patterns.motionDefeatedByVote, pg );
+                if(motionDefeatedByVote != null) {
                     ctx.voteParser.newVote();
                     ctx.postVoteState = POST_DEFEAT_VOTE;
                     return IN_VOTE;
                 }
 
-                Matcher motionAdoptedByVote = Patterns.motionAdoptedByVote.matcher( pg.contents );
-                if(motionAdoptedByVote.matches()) {
+                Matcher motionAdoptedByVote = ctx.match( Patterns.motionAdoptedByVote, pg );
+                if(motionAdoptedByVote != null) {
                     ctx.voteParser.newVote();
                     ctx.postVoteState = POST_ADOPT_VOTE;
                     return IN_VOTE;
                 }
 
-                Matcher movedPreviousQuestion = Patterns.movedPreviousQuestion.matcher( pg.contents );
-                if(movedPreviousQuestion.matches()) {
+                Matcher movedPreviousQuestion = ctx.match( Patterns.movedPreviousQuestion, pg );
+                if(movedPreviousQuestion != null) {
                     String rep = movedPreviousQuestion.group( 1 );
-                    System.err.printf("%s moved the previous question%n", rep );
-                    ctx.activeMotion = new Motion( Motion.Type.END_DEBATE, "move the previous question", ctx.activeMotion );
+                    Trace.debug( "motion", "%s moved the previous question", rep );
+                    ctx.activeMotion = ctx.motions.intern( Motion.Type.END_DEBATE, "move the previous question", ctx.activeMotion );
                     return IN_MOTION;
                 }
 
-                Matcher moveToReconsiderVote = Patterns.moveToReconsiderVote.matcher( pg.contents );
-                if(moveToReconsiderVote.matches()) {
-                    String rep = movedPreviousQuestion.group( 1 );
-                    System.err.printf("%s moved the previous question%n", rep );
-                    ctx.activeMotion = new Motion( Motion.Type.RECONSIDER_VOTE, "reconsider vote", ctx.activeMotion );
+                Matcher moveToReconsiderVote = ctx.match( Patterns.moveToReconsiderVote, pg );
+                if(moveToReconsiderVote != null) {
+                    String rep = moveToReconsiderVote.group( 1 );
+                    Trace.debug( "motion", "%s moved to reconsider the vote", rep );
+                    ctx.activeMotion = ctx.motions.intern( Motion.Type.RECONSIDER_VOTE, "reconsider vote", ctx.activeMotion );
                     return IN_MOTION;
                 }
 
-                Matcher moveToRefuseReceding = Patterns.moveToRefuseReceding.matcher( pg.contents );
-                if(moveToRefuseReceding.matches()) {
+                Matcher moveToRefuseReceding = ctx.match( Patterns.moveToRefuseReceding, pg );
+                if(moveToRefuseReceding != null) {
                     String rep = moveToRefuseReceding.group( 1 );
-                    System.err.printf("%s moved the house refuse to recede%n", rep );
-                    ctx.activeMotion = new Motion( Motion.Type.REFUSE_TO_RECEDE, "refuse to recede", ctx.activeMotion );
+                    Trace.debug( "motion", "%s moved the house refuse to recede", rep );
+                    ctx.activeMotion = ctx.motions.intern( Motion.Type.REFUSE_TO_RECEDE, "refuse to recede", ctx.activeMotion );
                     return IN_MOTION;
                 }
 
-                Matcher moveToRefuseToAdopt = Patterns.moveToRefuseToAdopt.matcher( pg.contents );
-                if(moveToRefuseToAdopt.matches()) {
+                Matcher moveToRefuseToAdopt = ctx.match( Patterns.moveToRefuseToAdopt, pg );
+                if(moveToRefuseToAdopt != null) {
                     String rep = moveToRefuseToAdopt.group( 1 );
-                    System.err.printf("%s moved the house refuse to adopt%n", rep );
-                    ctx.activeMotion = new Motion( Motion.Type.REFUSE_TO_ADOPT, "refuse to adopt", ctx.activeMotion );
+                    Trace.debug( "motion", "%s moved the house refuse to adopt", rep );
+                    ctx.activeMotion = ctx.motions.intern( Motion.Type.REFUSE_TO_ADOPT, "refuse to adopt", ctx.activeMotion );
                     return IN_MOTION;
                 }
 
-                Matcher moveToAdopt = Patterns.moveToAdopt.matcher( pg.contents );
-                if(moveToAdopt.matches()) {
+                Matcher moveToAdopt = ctx.match( Patterns.moveToAdopt, pg );
+                if(moveToAdopt != null) {
                     String rep = moveToAdopt.group( 1 );
                     String bill = moveToAdopt.group( 2 );
                     if(bill.contains( "Amendment" ) && ctx.activeMotion.type == Motion.Type.MAIN_MOTION ) {
                         // We've missed someone offering an amendment
-                        System.err.println("WARN: Missed amendment being offerred, retrofitting");
-                        ctx.activeMotion = new Motion( Motion.Type.AMEND, bill, ctx.activeMotion );
+                        Trace.warn( "missed-amendment", "Missed amendment being offered at %s, retrofitting", pg.source );
+                        ctx.activeMotion = ctx.motions.intern( Motion.Type.AMEND, bill, ctx.activeMotion );
                     } else
                     {
-                        System.err.printf( "%s moved to adopt %s%n", rep, bill );
-                        ctx.activeMotion = new Motion( Motion.Type.ADOPT, "adopt",
+                        Trace.debug( "motion", "%s moved to adopt %s", rep, bill );
+                        ctx.activeMotion = ctx.motions.intern( Motion.Type.ADOPT, "adopt",
                                 ctx.activeMotion );
                     }
                     return IN_MOTION;
                 }
 
-                Matcher moveToRecommit = Patterns.moveToRecommit.matcher( pg.contents );
-                if(moveToRecommit.matches()) {
+                Matcher moveToRecommit = ctx.match( Patterns.moveToRecommit, pg );
+                if(moveToRecommit != null) {
                     String rep = moveToRecommit.group( 1 );
-                    System.err.printf("%s moved to recommit to committee%n", rep );
-                    ctx.activeMotion = new Motion( Motion.Type.REFER_TO_COMMITTEE, "recommit", ctx.activeMotion );
+                    Trace.debug( "motion", "%s moved to recommit to committee", rep );
+                    ctx.activeMotion = ctx.motions.intern( Motion.Type.REFER_TO_COMMITTEE, "recommit", ctx.activeMotion );
                     return IN_MOTION;
                 }
 
-                Matcher moveToCommit = Patterns.moveToCommit.matcher( pg.contents );
-                if(moveToCommit.matches()) {
+                Matcher moveToCommit = ctx.match( Patterns.moveToCommit, pg );
+                if(moveToCommit != null) {
                     String rep = moveToCommit.group( 1 );
-                    System.err.printf("%s moved to commit to committee%n", rep );
-                    ctx.activeMotion = new Motion( Motion.Type.REFER_TO_COMMITTEE, "commit", ctx.activeMotion );
+                    Trace.debug( "motion", "%s moved to commit to committee", rep );
+                    ctx.activeMotion = ctx.motions.intern( Motion.Type.REFER_TO_COMMITTEE, "commit", ctx.activeMotion );
                     return IN_MOTION;
                 }
 
-                Matcher miscMovement = Patterns.miscMovement.matcher( pg.contents );
-                if(miscMovement.matches()) {
+                Matcher miscMovement = ctx.match( Patterns.miscMovement, pg );
+                if(miscMovement != null) {
                     String rep = miscMovement.group( 1 );
                     String motion = miscMovement.group( 2 );
-                    System.err.printf("%s moved that %s%n", rep, motion );
-                    ctx.activeMotion = new Motion( Motion.Type.MISC, motion, ctx.activeMotion );
+                    Trace.debug( "motion", "%s moved that %s", rep, motion );
+                    ctx.activeMotion = ctx.motions.intern( Motion.Type.MISC, motion, ctx.activeMotion );
                     return IN_MOTION;
                 }
 
-                System.err.println("    [ Unmatched:" + pg.contents.replace( "\\n", "\\\n" ) + "]");
-                if(pg.contents.contains( "moved that" )) {
-                    throw new RuntimeException( "Appear to have missed motion: " + pg.contents );
+                Trace.trace( "unmatched", "    [ Unmatched: %s]", pg.text );
+                if(pg.contents().contains( "moved that" )) {
+                    throw new RuntimeException( "Appear to have missed motion: " + pg.contents() );
                 }
                 return IN_MOTION;
             }
@@ -311,7 +361,7 @@ public class Analyzer
                 break;
             default:
 //                throw new RuntimeException( String.format( "Don't know how to handle adoption of %s", ctx.activeMotion ) );
-                System.err.println("WARN: Adoption of MISC motion: " + ctx.activeMotion );
+                Trace.warn( "misc-adopted", "Adoption of MISC motion: %s", ctx.activeMotion );
                 ctx.activeMotion = ctx.activeMotion.relatesTo;
             }
             if(ctx.activeMotion != null) {
@@ -322,21 +372,149 @@ public class Analyzer
     }
 
     public List<Action> analyze( String url, Iterable<String> inputLines ) {
+        return analyze( new Sanitizer().sanitize( url, inputLines ) );
+    }
+
+    // Analyze already sanitized paragraphs, like those from a MappedJournal. Between motions all
+    // we look for is a bill being taken up, so if the paragraphs can be skipped through, see
+    // Sanitizer.Skipping, everything up to the next one that says "taken up by" is passed over
+    // without being built, let alone analyzed.
+    public List<Action> analyze( Iterable<Paragraph> paragraphs ) {
+        start();
+        Iterator<Paragraph> it = paragraphs.iterator();
+        Sanitizer.Skipping skipping = it instanceof Sanitizer.Skipping ? (Sanitizer.Skipping) it : null;
+        while( true ) {
+            Paragraph pg;
+            if(skipping != null && state == State.NEXT_MOTION) {
+                pg = skipping.nextContaining( Patterns.TAKEN_UP );
+            } else {
+                pg = it.hasNext() ? it.next() : null;
+            }
+            if(pg == null) {
+                break;
+            }
+            accept( pg );
+        }
+        return finish();
+    }
+
+    // Push based alternative to analyze(..): call start(), hand paragraphs to accept(..) as they
+    // are produced, and collect the journal's actions with finish().
+    public void start() {
         this.out = new ArrayList<>();
+        this.state = State.NEXT_MOTION;
+    }
 
-        State state = State.NEXT_MOTION;
-        for ( Paragraph pg : new Sanitizer().sanitize( url, inputLines ) )
-        {
-            System.err.println(pg.contents);
+    public void accept( Paragraph pg ) {
+        paragraphs++;
+        Trace.trace( "paragraph", "%s", pg.text );
+        try {
             state = state.analyze( this, pg );
-            System.err.printf("== %s | %s | %s%n", state, activeMotion, pg.source);
+        } catch( RuntimeException e ) {
+            if(errors == null) {
+                throw e;
+            }
+            // The next segment starts by handing its first paragraph to NEXT_MOTION too, and reports
+            // anything going wrong there itself
+            if(pg != next || state != State.NEXT_MOTION) {
+                errors.add( pg, state, e );
+                Trace.warn( "recovered", "%s at %s, skipping to the next bill taken up", e.getMessage(), pg.source );
+            }
+            mainMotion = null;
+            activeMotion = null;
+            postVoteState = null;
+            // This may be where the next bill is taken up, unless it is the next segment's to analyze
+            state = pg == next ? State.NEXT_MOTION : State.NEXT_MOTION.analyze( this, pg );
         }
+        Trace.trace( "state", "== %s | %s | %s", state, activeMotion, pg.source );
+    }
 
-        return out;
+    // Total paragraphs this analyzer has seen, for throughput reporting; not counting any skipped
+    // over between motions
+    public long paragraphsAnalyzed() {
+        return paragraphs;
+    }
+
+    public List<Action> finish() {
+        List<Action> actions = out;
+        this.out = null;
+        return actions;
+    }
+
+    // Analyze a journal's paragraphs in segments, concurrently on pool, giving the same actions as
+    // analyze(..) would. Segments start where a bill is taken up: the analyzer only looks for that
+    // between main motions, so it is back at NEXT_MOTION by then (or it would throw), and each
+    // segment can be analyzed from scratch. Each segment is also fed the paragraph starting the
+    // next one, since that is what ends a vote block at the end of a segment; errors there are
+    // left to the next segment, unless it ended one. Paragraphs before the first bill is taken up
+    // are skipped, as the analyzer ignores those anyway.
+    // Errors are recovered from as with Analyzer(Roster, ErrorReport), unless errors is null.
+    // Each segment has its own view of the roster as it is when this is called, see Roster.view(),
+    // so no segment depends on how far the others have got; what they learn is added to roster in
+    // segment order once all are done.
+    public static CompletableFuture<List<Action>> analyzeSegmented( List<Paragraph> paragraphs, Session session, Roster roster, ErrorReport errors,
+            Executor pool ) {
+        Roster snapshot = roster.view();
+        List<Integer> starts = segmentStarts( paragraphs, snapshot );
+        List<CompletableFuture<List<Action>>> segments = new ArrayList<>( starts.size() );
+        List<Roster> views = new ArrayList<>( starts.size() );
+        for ( int s = 0; s < starts.size(); s++ )
+        {
+            List<Paragraph> segment = paragraphs.subList( starts.get( s ), s + 1 < starts.size() ? starts.get( s + 1 ) + 1 : paragraphs.size() );
+            Roster view = snapshot.view();
+            Analyzer analyzer = new Analyzer( session, view, errors );
+            analyzer.next = s + 1 < starts.size() ? paragraphs.get( starts.get( s + 1 ) ) : null;
+            segments.add( CompletableFuture.supplyAsync( () -> analyzer.analyze( segment ), pool ) );
+            views.add( view );
+        }
+        return CompletableFuture.allOf( segments.toArray( new CompletableFuture<?>[0] ) ).thenApply( ignore -> {
+            List<Action> actions = new ArrayList<>();
+            for ( int s = 0; s < segments.size(); s++ )
+            {
+                actions.addAll( segments.get( s ).join() );
+                roster.learnFrom( views.get( s ) );
+            }
+            return actions;
+        } );
+    }
+
+    // Where bills are taken up
+    static List<Integer> segmentStarts( List<Paragraph> paragraphs, Roster roster ) {
+        Analyzer scout = new Analyzer( roster );
+        List<Integer> starts = new ArrayList<>();
+        for ( int i = 0; i < paragraphs.size(); i++ )
+        {
+            if(scout.match( Patterns.takenUp, paragraphs.get( i ) ) != null) {
+                starts.add( i );
+            }
+        }
+        return starts;
+    }
+
+    // Match pattern against the paragraph, returning the matcher if it matched and null if not.
+    // Only patterns whose keywords appear in the paragraph are actually run; the paragraph is
+    // scanned for all keywords at once the first time it is passed in here.
+    Matcher match( Pattern pattern, Paragraph pg ) {
+        if(pg != scanned) {
+            scanned = pg;
+            keywordsFound = Patterns.scanForKeywords( pg.text );
+        }
+        int rule = Patterns.rule( pattern );
+        long required = Patterns.requiredKeywords[rule];
+        if((keywordsFound & required) != required) {
+            return null;
+        }
+        Matcher matcher = matchers[rule];
+        if(matcher == null) {
+            matcher = matchers[rule] = pattern.matcher( pg.text );
+        } else {
+            matcher.reset( pg.text );
+        }
+        return matcher.matches() ? matcher : null;
     }
 
     void addAction( Action action ) {
-        System.err.println(action);
+        Trace.debug( "action", "%s", action );
         this.out.add( action );
     }
 
@@ -581,12 +759,13 @@ public class Analyzer
         private int expectedPresent = 0;
         private int expectedAbsentWithLeave = 0;
         public String currentVoteGroup = null;
-        public String[] ayes = new String[]{};
-        private String[] noes = new String[]{};
-        private String[] present = new String[]{};
-        private String[] absent = new String[]{};
-        private String[] absentWithLeave = new String[]{};
-        private String[] vacancies = new String[]{};
+        // Names are added to these in place as the vote parser finds them
+        public final List<String> ayes = new ArrayList<>();
+        private final List<String> noes = new ArrayList<>();
+        private final List<String> present = new ArrayList<>();
+        private final List<String> absent = new ArrayList<>();
+        private final List<String> absentWithLeave = new ArrayList<>();
+        private final List<String> vacancies = new ArrayList<>();
 
         int expectedVotesInCurrentGroup() {
             switch(currentVoteGroup.toLowerCase()) {
@@ -598,7 +777,7 @@ public class Analyzer
             throw new RuntimeException( "Unknown vote group: " + currentVoteGroup );
         }
 
-        String[] votesInCurrentGroup() {
+        List<String> votesInCurrentGroup() {
             switch(currentVoteGroup.toLowerCase()) {
             case "ayes": return ayes;
             case "noes": return noes;
@@ -608,16 +787,6 @@ public class Analyzer
             throw new RuntimeException( "Unknown vote group: " + currentVoteGroup );
         }
 
-        void addVotesToCurrentGroup(String[] votes) {
-            switch(currentVoteGroup.toLowerCase()) {
-            case "ayes": ayes = Collections.concat( ayes, votes ); break;
-            case "noes": noes = Collections.concat( noes, votes ); break;
-            case "present": present = Collections.concat( present, votes ); break;
-            case "absent with leave": absentWithLeave = Collections.concat( absentWithLeave, votes ); break;
-            default: throw new RuntimeException( "Unknown vote group: " + currentVoteGroup );
-            }
-        }
-
         public void setExpectedVotesInCurrentGroup( int expectedVotes ) {
             switch(currentVoteGroup.toLowerCase()) {
             case "ayes": expectedAyes = expectedVotes; break;
@@ -628,14 +797,15 @@ public class Analyzer
             }
         }
 
-        public Vote toVote()
+        public Vote toVote( RepTable reps )
         {
-            if(ayes.length != expectedAyes) { throw new RuntimeException( String.format("Expected %d ayes found %d", expectedAyes, ayes.length) ); }
-            if(noes.length != expectedNoes) { throw new RuntimeException( String.format("Expected %d noes found %d", expectedNoes, noes.length) ); }
-            if(absent.length != expectedAbsent) { throw new RuntimeException( String.format("Expected %d absent found %d", expectedAbsent, absent.length) ); }
-            if(absentWithLeave.length != expectedAbsentWithLeave) { throw new RuntimeException( String.format("Expected %d absentWithLeave found %d", expectedAbsentWithLeave, absentWithLeave.length) ); }
-            if(present.length != expectedPresent) { throw new RuntimeException( String.format("Expected %d present found %d", expectedPresent, present.length) ); }
-            return new Vote( ayes, noes, absent, absentWithLeave, present );
+            if(ayes.size() != expectedAyes) { throw new RuntimeException( String.format("Expected %d ayes found %d", expectedAyes, ayes.size()) ); }
+            if(noes.size() != expectedNoes) { throw new RuntimeException( String.format("Expected %d noes found %d", expectedNoes, noes.size()) ); }
+            if(absent.size() != expectedAbsent) { throw new RuntimeException( String.format("Expected %d absent found %d", expectedAbsent, absent.size()) ); }
+            if(absentWithLeave.size() != expectedAbsentWithLeave) { throw new RuntimeException( String.format("Expected %d absentWithLeave found %d", expectedAbsentWithLeave, absentWithLeave.size()) ); }
+            if(present.size() != expectedPresent) { throw new RuntimeException( String.format("Expected %d present found %d", expectedPresent, present.size()) ); }
+            return new Vote( reps, ayes.toArray( new String[0] ), noes.toArray( new String[0] ), absent.toArray( new String[0] ),
+                    absentWithLeave.toArray( new String[0] ), present.toArray( new String[0] ) );
         }
 
         @Override
@@ -644,11 +814,9 @@ public class Analyzer
             return "VoteContext{" + "expectedAyes=" + expectedAyes + ", expectedNoes=" +
                     expectedNoes + ", expectedAbsent=" + expectedAbsent + ", expectedPresent=" +
                     expectedPresent + ", expectedAbsentWithLeave=" + expectedAbsentWithLeave +
-                    ", currentVoteGroup='" + currentVoteGroup + '\'' + ", ayes=" +
-                    Arrays.toString( ayes ) + ", noes=" + Arrays.toString( noes ) + ", present=" +
-                    Arrays.toString( present ) + ", absent=" + Arrays.toString( absent ) +
-                    ", absentWithLeave=" + Arrays.toString( absentWithLeave ) + ", vacancies=" +
-                    Arrays.toString( vacancies ) + '}';
+                    ", currentVoteGroup='" + currentVoteGroup + '\'' + ", ayes=" + ayes +
+                    ", noes=" + noes + ", present=" + present + ", absent=" + absent +
+                    ", absentWithLeave=" + absentWithLeave + ", vacancies=" + vacancies + '}';
         }
     }
 
@@ -658,6 +826,8 @@ public class Analyzer
         // .. et cetera
         // ending June 30, 2020, was again taken up by Representative Smith.
         static Pattern takenUp = Pattern.compile("\\s*([^,]+),.*was(?: again)? taken up by (.*)\\.?\\s*");
+        // What takenUp can't match without, which is all NEXT_MOTION looks for
+        static final String TAKEN_UP = "taken up by";
 
         // HCS HB 10, as amended, was laid over.
         static Pattern laidOver = Pattern.compile("\\s*([^,]+),?.*was laid over\\.?\\s*");
@@ -725,10 +895,73 @@ public class Analyzer
         // Representative Coleman (32), having voted on the prevailing side, moved that the vote by  which HCS SB 182, as amended, was adopted be reconsidered.
         static Pattern moveToReconsiderVote = Pattern.compile( "\\s+Representative ([^,]+),.*moved that\\s+the\\s+vote\\s+by\\s+which\\s+(.*),\\s+as\\s+amended,\\s+was\\s+adopted be reconsidered.*" );
 
-        // HCR 1, HR 1, HCS HB 1158, SS SB 213, SB 185, HCS SB 275, SS HB 138, HCS SCS SB 174, SBs 70 & 128, HB 616
-        // HCS HBs 275 & 853, SCR 1, HCB 1, SS HCS#2, SS SB 145, HJR 30, SS#2 SCR 14, HBs 243 & 544, CCR SS SCS HCS HB 399
-        // SS SCS SJRs 14 & 9, HCS HJRs 48, HRB 1
-        static Pattern bill = Pattern.compile( ".*((HRB \\d+)|(HCS HJRs \\d+)|(SS SCS SJRs \\d+ & \\d+)|(CCR SS SCS HCS HB \\d+)|(HBs \\d+ & \\d+)|(SS#?\\d+ SCR \\d+)|(HJR ?#?\\d+)|(HCB ?#?\\d+)|(SCR ?#?\\d+)|(HB ?#?\\d+)|(HCS HBs \\d+ & \\d+)|(SBs \\d+ & \\d+)|(SB ?#?\\d)|(HCS SCS SB ?#?\\d+)|(SS HB ?#?\\d+)|(HCS SB ?#?\\d+)|(SS SB ?#?\\d+)|(HCS HB ?#?\\d+)|(SS HCS ?#?\\d+)|(HCR ?#?\\d+)|(HR ?#?\\d+)).*" );
+        // Phrases each pattern can't match without; see Analyzer.match(..). Only literal text from
+        // the patterns belongs here, never anything the pattern matches with \\s+ or similar.
+        static final Map<Pattern, String[]> keywords = new IdentityHashMap<>();
+        static {
+            keywords.put( takenUp, new String[]{ TAKEN_UP } );
+            keywords.put( laidOver, new String[]{ "was laid over" } );
+            keywords.put( placedOnInformalCalendar, new String[]{ "Informal" } );
+            keywords.put( referredToCommittee, new String[]{ "was referred to", "pursuant to" } );
+            keywords.put( amendmentAdoptedByVote, new String[]{ "On motion of", "House Amendment No", "following" } );
+            keywords.put( amendmentAdopted, new String[]{ "On motion of", "House Amendment No", "was adopted" } );
+            keywords.put( billAdopted, new String[]{ "On motion of", "adopted" } );
+            keywords.put( billOrderedPerfected, new String[]{ "On motion of", "perfected" } );
+            keywords.put( billAdoptedByVote, new String[]{ "On motion of", "adopted", "following" } );
+            keywords.put( billPassedByVote, new String[]{ "On motion of", "passed", "following" } );
+            keywords.put( motionDefeated, new String[]{ "Which motion was defeated" } );
+            keywords.put( motionAdopted, new String[]{ "Which motion was adopted" } );
+            keywords.put( motionDefeatedByVote, new String[]{ "Which motion was defeated", "following" } );
+            keywords.put( motionAdoptedByVote, new String[]{ "Which motion was adopted", "following" } );
+            keywords.put( movedPreviousQuestion, new String[]{ "previous question" } );
+            keywords.put( miscMovement, new String[]{ "moved that" } );
+            keywords.put( moveToRecommit, new String[]{ "moved that", "recommitted" } );
+            keywords.put( moveToCommit, new String[]{ "committed" } );
+            keywords.put( moveToAdopt, new String[]{ "moved that", "be adopted" } );
+            keywords.put( moveToRefuseReceding, new String[]{ "refuse to recede" } );
+            keywords.put( moveToRefuseToAdopt, new String[]{ "refuse" } );
+            keywords.put( moveToReconsiderVote, new String[]{ "moved that", "reconsidered" } );
+        }
+
+        // Each pattern above is a rule, numbered in the order of this map; requiredKeywords[rule]
+        // has a bit set for each keyword the rule needs.
+        private static final Map<Pattern, Integer> rules = new IdentityHashMap<>();
+        static final long[] requiredKeywords = new long[keywords.size()];
+        private static final AhoCorasick keywordSearch;
+        static {
+            List<String> distinct = new ArrayList<>();
+            for ( Map.Entry<Pattern, String[]> entry : keywords.entrySet() )
+            {
+                int rule = rules.size();
+                rules.put( entry.getKey(), rule );
+                for ( String keyword : entry.getValue() )
+                {
+                    if(!distinct.contains( keyword )) {
+                        distinct.add( keyword );
+                    }
+                    requiredKeywords[rule] |= 1L << distinct.indexOf( keyword );
+                }
+            }
+            if(distinct.size() > Long.SIZE) {
+                throw new IllegalStateException( "Too many keywords to track in a long" );
+            }
+            keywordSearch = new AhoCorasick( distinct, false );
+        }
+
+        static int rule( Pattern pattern ) {
+            Integer rule = rules.get( pattern );
+            if(rule == null) {
+                throw new IllegalArgumentException( "No keywords registered for " + pattern );
+            }
+            return rule;
+        }
+
+        // Bitmask of the keywords present in text
+        static long scanForKeywords( CharSequence text ) {
+            long[] found = new long[1];
+            keywordSearch.scan( text, ( keyword, start, end ) -> found[0] |= 1L << keyword );
+            return found[0];
+        }
 
     }
 }
@@ -1,16 +1,25 @@
 package jefferson.analyzer;
 
+import jefferson.MappedJournal;
+import jefferson.Sanitizer;
 import jefferson.domain.Action;
 import jefferson.domain.Motion;
+import jefferson.domain.RepTable;
+import jefferson.domain.Vote;
 
-import java.io.IOException;
-import java.io.InputStream;
 import java.lang.invoke.MethodHandles;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
-import java.util.Arrays;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
-import java.util.Scanner;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.regex.Pattern;
 
 public class Analyzer_Test
 {
@@ -49,8 +58,7 @@ public class Analyzer_Test
     }
 
     public void testParseMotionOrder() throws Exception {
-        List<Action> actions =
-                new Analyzer().analyze( "http://example.com", loadJournal( "HB10_taken_up_amended_and_laid_over.txt" ) );
+        List<Action> actions = Fixtures.hb10();
 
         Motion hb10 = new Motion( Motion.Type.MAIN_MOTION, "HCS HB 10", null );
         assertEq( new Analyzer.AdoptWithoutVote( new Motion( Motion.Type.AMEND, "House Amendment 2 of HCS HB 10", hb10 ), null ), actions.get( 0 ) );
@@ -67,21 +75,189 @@ public class Analyzer_Test
         assertEq( 85, actions.get( 6 ).vote().noes.size() );
     }
 
-    private void assertEq(Object expected, Object actual) {
-        assert expected.equals(actual) : String.format("Expected \n  %s \nto be \n  %s", actual, expected);
+    public void testStreamingMatchesBatch() throws Exception {
+        List<String> lines = Fixtures.loadJournal( Fixtures.HB10 );
+        List<Action> batch = new Analyzer().analyze( "http://example.com", lines );
+
+        Analyzer analyzer = new Analyzer();
+        analyzer.start();
+        Sanitizer.Feed feed = new Sanitizer().feed( "http://example.com", analyzer::accept );
+        lines.forEach( feed );
+        feed.end();
+
+        assertEq( batch, analyzer.finish() );
     }
 
-    private List<String> loadJournal(String name) throws IOException
-    {
-        try( InputStream in = getClass().getResourceAsStream( String.format( "/testdata/%s", name ) )) {
-            if(in == null) {
-                throw new AssertionError( String.format("Can't find %s", name) );
+    public void testMappedJournalMatchesSanitizer() throws Exception {
+        List<String> lines = Fixtures.loadJournal( Fixtures.HB10 );
+        Path file = Files.createTempFile( "journal", ".txt" );
+        try {
+            Files.write( file, lines );
+            Iterator<Sanitizer.Paragraph> expected = new Sanitizer().sanitize( "http://example.com", lines ).iterator();
+            for ( Sanitizer.Paragraph actual : MappedJournal.open( file, "http://example.com" ) )
+            {
+                assert expected.hasNext() : "Mapped journal has more paragraphs than the sanitizer";
+                Sanitizer.Paragraph pg = expected.next();
+                assertEq( pg.contents(), actual.contents() );
+                assertEq( pg.source.lineNo, actual.source.lineNo );
             }
-            Scanner scanner = new Scanner( in ).useDelimiter( "\\A" );
-            if(!scanner.hasNext()) {
-                throw new AssertionError( String.format("%s is empty?", name) );
+            assert !expected.hasNext() : "Mapped journal has fewer paragraphs than the sanitizer";
+
+            assertEq( new Analyzer().analyze( "http://example.com", lines ),
+                    new Analyzer().analyze( MappedJournal.open( file, "http://example.com" ) ) );
+        } finally {
+            Files.delete( file );
+        }
+    }
+
+    public void testSkippingMatchesFullScan() throws Exception {
+        List<String> lines = Fixtures.loadJournal( Fixtures.HB10 );
+        List<Sanitizer.Paragraph> all = new ArrayList<>();
+        new Sanitizer().sanitize( "http://example.com", lines ).forEach( all::add );
+        Path file = Files.createTempFile( "journal", ".txt" );
+        try {
+            Files.write( file, lines );
+            List<Iterator<Sanitizer.Paragraph>> sources = List.of(
+                    new Sanitizer().sanitize( "http://example.com", lines ).iterator(),
+                    MappedJournal.open( file, "http://example.com" ).iterator() );
+            for ( Iterator<Sanitizer.Paragraph> source : sources )
+            {
+                Sanitizer.Skipping skipping = (Sanitizer.Skipping) source;
+                for ( Sanitizer.Paragraph pg : all )
+                {
+                    if(pg.contents().contains( "Amendment" )) {
+                        Sanitizer.Paragraph skipped = skipping.nextContaining( "Amendment" );
+                        assertEq( pg.contents(), skipped.contents() );
+                        assertEq( pg.source.lineNo, skipped.source.lineNo );
+                    }
+                }
+                assert skipping.nextContaining( "Amendment" ) == null : "Skipped past the end";
             }
-            return Arrays.asList( scanner.next().split( "\n" ) );
+
+            // A list doesn't skip, so this analyzes every paragraph
+            List<Action> expected = new Analyzer().analyze( all );
+            assertEq( expected, new Analyzer().analyze( new Sanitizer().sanitize( "http://example.com", lines ) ) );
+            assertEq( expected, new Analyzer().analyze( MappedJournal.open( file, "http://example.com" ) ) );
+        } finally {
+            Files.delete( file );
+        }
+    }
+
+    public void testToleratesBadParagraphs() throws Exception {
+        // Three bills taken up, with the count of ayes off in the second
+        List<String> journal = Fixtures.loadJournal( Fixtures.HB10 );
+        List<String> lines = new ArrayList<>();
+        for ( int i = 0; i < 3; i++ )
+        {
+            for ( String line : journal )
+            {
+                lines.add( i == 1 && line.equals( "AYES: 040" ) ? "AYES: 041" : line );
+            }
+            lines.add( "" );
+        }
+        try {
+            new Analyzer().analyze( "http://example.com", lines );
+            assert false : "Expected the bad vote to fail analysis";
+        } catch( RuntimeException e ) {
+            // Expected
+        }
+
+        ErrorReport errors = new ErrorReport();
+        List<Action> actions = new Analyzer( new Roster(), errors ).analyze( "http://example.com", lines );
+        assertEq( 1, errors.size() );
+        ErrorReport.Entry error = errors.errors().get( 0 );
+        // Noticed at the next group header, as the ayes come up one short; the paragraph ends the
+        // line after it
+        assertEq( journal.size() + 1 + journal.indexOf( "NOES: 101" ) + 2, error.source.lineNo );
+        assertEq( "IN_VOTE", error.state );
+
+        // All of the first and last bill, and the second up to the bad vote
+        List<Action> one = new Analyzer().analyze( "http://example.com", journal );
+        int second = actions.size() - 2 * one.size();
+        assert second >= 0 && second < one.size() : "Found " + actions.size() + " actions";
+        assertEq( one, actions.subList( 0, one.size() ) );
+        assertEq( one.subList( 0, second ), actions.subList( one.size(), one.size() + second ) );
+        assertEq( one, actions.subList( one.size() + second, actions.size() ) );
+    }
+
+    public void testSegmentedMatchesSequential() throws Exception {
+        // Three bills taken up one after the other, so three segments
+        List<String> journal = Fixtures.loadJournal( Fixtures.HB10 );
+        List<String> lines = new ArrayList<>();
+        for ( int i = 0; i < 3; i++ )
+        {
+            lines.addAll( journal );
+            lines.add( "" );
         }
+        List<Sanitizer.Paragraph> paragraphs = new ArrayList<>();
+        new Sanitizer().sanitize( "http://example.com", lines ).forEach( paragraphs::add );
+        assertEq( 3, Analyzer.segmentStarts( paragraphs, new Roster() ).size() );
+
+        ExecutorService pool = Executors.newFixedThreadPool( 3 );
+        try {
+            assertEq( new Analyzer().analyze( paragraphs ),
+                    Analyzer.analyzeSegmented( paragraphs, new Session(), new Roster(), null, pool ).join() );
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    public void testPatternKeywordsAreLiteral() {
+        // Analyzer.match(..) skips a pattern unless its keywords are in the paragraph, which is
+        // only correct if the pattern can't match without them
+        for ( Map.Entry<Pattern, String[]> entry : Analyzer.Patterns.keywords.entrySet() )
+        {
+            for ( String keyword : entry.getValue() )
+            {
+                assert entry.getKey().pattern().contains( keyword ) :
+                        String.format( "'%s' is not literally in %s", keyword, entry.getKey() );
+                assert !keyword.matches( ".*[.()\\[\\]*+?{}|^$\\\\].*" ) :
+                        String.format( "'%s' contains regex syntax", keyword );
+            }
+        }
+    }
+
+    public void testFindsKnownRepsSplitOverJoinedLines() {
+        Roster roster = new Roster();
+        roster.learn( "Franks Jr." );
+        roster.learn( "O'Donnell" );
+        List<String> found = new ArrayList<>();
+        // Lines are joined with two spaces, so a name split over two lines has a run of them
+        String text = "FRANKS  JR.   O’Donnell";
+        roster.matcher().scan( text, ( pattern, start, end ) -> found.add( text.substring( start, end ) ) );
+        assertEq( List.of( "FRANKS  JR.", "O’Donnell" ), found );
+
+        // Known well enough to parse by name, which gives the names as the split method would have
+        for ( int i = 0; i < 100; i++ )
+        {
+            roster.learn( "Smith " + i );
+        }
+        VoteParser parser = new VoteParser( new RepTable(), roster );
+        parser.newVote();
+        for ( String block : List.of( "AYES: 002", text, "NOES: 000" ) )
+        {
+            parser.analyze( new Sanitizer.Paragraph( new Source( "http://example.com", 1 ), block ) );
+        }
+        assertEq( Set.of( "FRANKS JR.", "O’Donnell" ), parser.toVote().names( Vote.Group.AYES ) );
+    }
+
+    public void testViewsOnlyLearnWhatTheyAreTaught() {
+        Roster roster = new Roster();
+        roster.learn( "Franks Jr." );
+        Roster first = roster.view();
+        Roster second = roster.view();
+        first.learn( "O'Donnell" );
+        assertEq( List.of( "franks jr." ), second.names() );
+        assertEq( List.of( "franks jr." ), roster.names() );
+
+        assert first.upToDateWith( roster ) && second.upToDateWith( roster ) : "Nothing merged yet";
+
+        roster.learnFrom( first );
+        assertEq( first.names(), roster.names() );
+        assert !second.upToDateWith( roster ) : "Merged a name the second view didn't know";
+    }
+
+    private void assertEq(Object expected, Object actual) {
+        assert expected.equals(actual) : String.format("Expected \n  %s \nto be \n  %s", actual, expected);
     }
 }
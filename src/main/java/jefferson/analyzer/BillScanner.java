@@ -0,0 +1,272 @@
+package jefferson.analyzer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+// Finds references to bills and resolutions in text, like "HB 10", "SS SCS SJRs 14 & 9" or
+// "CCR SS SCS HCS HB 399", in a single pass over the text.
+//
+// A reference is any number of substitute prefixes (HCS, SCS, SS, CCR, each optionally numbered
+// like HCS#2), followed by the kind of bill, followed by its number. Plural kinds, like HBs,
+// are followed by a list of numbers: "HBs 243 & 544", "HCS HJRs 48, 46 & 47". A substitute for a
+// substitute may also be referred to without the bill, like "SS HCS#2": two or more prefixes, the
+// last of them numbered. Those have a kind of null, and no numbers or keys.
+public class BillScanner
+{
+    private static final Set<String> SUBSTITUTES = Set.of( "HCS", "SCS", "SS", "CCR", "HS" );
+    private static final Set<String> KINDS = Set.of( "HB", "SB", "HJR", "SJR", "HCR", "SCR", "HR", "SR", "HRB", "HCB" );
+
+    public static class Reference
+    {
+        // Where the reference is in the text, start inclusive and end exclusive
+        public final int start;
+        public final int end;
+        // Substitute prefixes, outermost first, like [SS, HCS#2]
+        public final List<String> substitutes;
+        // Kind of bill, always singular, like HB or SJR; null if there is none, as in "SS HCS#2"
+        public final String kind;
+        public final int[] numbers;
+        private final boolean plural;
+
+        Reference( int start, int end, List<String> substitutes, String kind, boolean plural, int[] numbers )
+        {
+            this.start = start;
+            this.end = end;
+            this.substitutes = substitutes;
+            this.kind = kind;
+            this.plural = plural;
+            this.numbers = numbers;
+        }
+
+        // The reference as written, with whitespace normalized, like "SS SCS SJRs 14 & 9"
+        public String canonical()
+        {
+            StringBuilder sb = new StringBuilder();
+            for ( String substitute : substitutes )
+            {
+                sb.append( substitute ).append( ' ' );
+            }
+            if(kind == null) {
+                sb.setLength( sb.length() - 1 );
+                return sb.toString();
+            }
+            sb.append( kind );
+            if(plural) {
+                sb.append( 's' );
+            }
+            for ( int i = 0; i < numbers.length; i++ )
+            {
+                sb.append( i == 0 ? " " : i == numbers.length - 1 ? " & " : ", " ).append( numbers[i] );
+            }
+            return sb.toString();
+        }
+
+        // The bills referred to, ignoring substitutes, so "SS SCS SJRs 14 & 9" gives "SJR 14" and
+        // "SJR 9". Every version of a bill has the same key, so these are what to index on.
+        public List<String> keys()
+        {
+            List<String> keys = new ArrayList<>( numbers.length );
+            for ( int number : numbers )
+            {
+                keys.add( kind + " " + number );
+            }
+            return keys;
+        }
+
+        @Override
+        public String toString()
+        {
+            return canonical() + "@" + start;
+        }
+    }
+
+    public static List<Reference> scan( CharSequence text )
+    {
+        List<Reference> out = new ArrayList<>();
+        int length = text.length();
+        int i = 0;
+        while( i < length ) {
+            char c = text.charAt( i );
+            if(c < 'A' || c > 'Z' || (i > 0 && Character.isLetterOrDigit( text.charAt( i - 1 ) ))) {
+                i++;
+                continue;
+            }
+            Reference ref = referenceAt( text, i );
+            if(ref != null) {
+                out.add( ref );
+                i = ref.end;
+            } else {
+                // Not a reference, skip the rest of this word
+                do {
+                    i++;
+                } while( i < length && Character.isLetterOrDigit( text.charAt( i ) ) );
+            }
+        }
+        return out;
+    }
+
+    // Keys of every bill referenced in text, see Reference.keys()
+    public static List<String> keys( CharSequence text )
+    {
+        List<Reference> refs = scan( text );
+        if(refs.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<String> keys = new ArrayList<>();
+        for ( Reference ref : refs )
+        {
+            for ( String key : ref.keys() )
+            {
+                if(!keys.contains( key )) {
+                    keys.add( key );
+                }
+            }
+        }
+        return keys;
+    }
+
+    private static Reference referenceAt( CharSequence text, int start )
+    {
+        int length = text.length();
+        List<String> substitutes = null;
+        // Where a reference without a bill, like "SS HCS#2", would end, should no bill follow; and
+        // how many of the substitutes are in it
+        int bare = -1;
+        int bareSubstitutes = 0;
+        int pos = start;
+        while( pos < length ) {
+            int wordEnd = pos;
+            while( wordEnd < length && text.charAt( wordEnd ) >= 'A' && text.charAt( wordEnd ) <= 'Z' ) {
+                wordEnd++;
+            }
+            if(wordEnd == pos) {
+                return bare( start, bare, substitutes, bareSubstitutes );
+            }
+            String word = text.subSequence( pos, wordEnd ).toString();
+
+            if(SUBSTITUTES.contains( word )) {
+                if(wordEnd < length && Character.isLetterOrDigit( text.charAt( wordEnd ) )) {
+                    return bare( start, bare, substitutes, bareSubstitutes );
+                }
+                if(substitutes == null) {
+                    substitutes = new ArrayList<>( 4 );
+                }
+                // Numbered like "HCS#2", or when there are prefixes before it, "HCS #2" and "HCS 2"
+                // too, which can only end a reference
+                int p = wordEnd;
+                if(!substitutes.isEmpty() && p < length && text.charAt( p ) == ' ') {
+                    p++;
+                }
+                if(p < length && text.charAt( p ) == '#' && (p == wordEnd || !substitutes.isEmpty())) {
+                    p++;
+                }
+                int numberEnd = skipDigits( text, p );
+                int end = wordEnd;
+                if(numberEnd > p && (numberEnd == length || !Character.isLetterOrDigit( text.charAt( numberEnd ) ))) {
+                    substitutes.add( word + "#" + text.subSequence( p, numberEnd ) );
+                    if(substitutes.size() > 1) {
+                        bare = numberEnd;
+                        bareSubstitutes = substitutes.size();
+                    }
+                    if(text.charAt( wordEnd ) == ' ') {
+                        return bare( start, bare, substitutes, bareSubstitutes );
+                    }
+                    end = numberEnd;
+                } else {
+                    substitutes.add( word );
+                }
+                int next = skipSpaces( text, end );
+                if(next == end || next == length) {
+                    return bare( start, bare, substitutes, bareSubstitutes );
+                }
+                pos = next;
+                continue;
+            }
+
+            boolean plural = wordEnd < length && text.charAt( wordEnd ) == 's';
+            int kindEnd = plural ? wordEnd + 1 : wordEnd;
+            if(!KINDS.contains( word ) || (kindEnd < length && Character.isLetter( text.charAt( kindEnd ) ))) {
+                return bare( start, bare, substitutes, bareSubstitutes );
+            }
+
+            // Number, like "HB 10", "HB10", "HB #10" or "HB#10"
+            int p = kindEnd;
+            if(p < length && text.charAt( p ) == ' ') {
+                p++;
+            }
+            if(p < length && text.charAt( p ) == '#') {
+                p++;
+            }
+            int numberEnd = skipDigits( text, p );
+            if(numberEnd == p) {
+                return bare( start, bare, substitutes, bareSubstitutes );
+            }
+            int[] numbers = new int[]{ parse( text, p, numberEnd ) };
+            int end = numberEnd;
+
+            // Plurals list more numbers, like "48, 46 & 47"
+            while( plural ) {
+                int q = skipSpaces( text, end );
+                if(q >= length || (text.charAt( q ) != ',' && text.charAt( q ) != '&')) {
+                    break;
+                }
+                q = skipSpaces( text, q + 1 );
+                int qEnd = skipDigits( text, q );
+                if(qEnd == q) {
+                    break;
+                }
+                numbers = Arrays.copyOf( numbers, numbers.length + 1 );
+                numbers[numbers.length - 1] = parse( text, q, qEnd );
+                end = qEnd;
+            }
+            if(end < length && Character.isLetterOrDigit( text.charAt( end ) )) {
+                return bare( start, bare, substitutes, bareSubstitutes );
+            }
+            return new Reference( start, end, substitutes == null ? Collections.emptyList() : substitutes, word, plural, numbers );
+        }
+        return bare( start, bare, substitutes, bareSubstitutes );
+    }
+
+    // The reference without a bill found on the way, if there was one
+    private static Reference bare( int start, int end, List<String> substitutes, int count )
+    {
+        if(end < 0) {
+            return null;
+        }
+        return new Reference( start, end, new ArrayList<>( substitutes.subList( 0, count ) ), null, false, new int[0] );
+    }
+
+    private static boolean isDigit( char c )
+    {
+        return c >= '0' && c <= '9';
+    }
+
+    private static int skipDigits( CharSequence text, int pos )
+    {
+        while( pos < text.length() && isDigit( text.charAt( pos ) ) ) {
+            pos++;
+        }
+        return pos;
+    }
+
+    private static int skipSpaces( CharSequence text, int pos )
+    {
+        while( pos < text.length() && text.charAt( pos ) == ' ' ) {
+            pos++;
+        }
+        return pos;
+    }
+
+    private static int parse( CharSequence text, int start, int end )
+    {
+        int n = 0;
+        for ( int i = start; i < end; i++ )
+        {
+            n = n * 10 + (text.charAt( i ) - '0');
+        }
+        return n;
+    }
+}
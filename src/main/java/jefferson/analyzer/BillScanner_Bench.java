@@ -0,0 +1,71 @@
+package jefferson.analyzer;
+
+import jefferson.Sanitizer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.regex.Pattern;
+
+// Compares BillScanner against the regex it replaced, on the paragraphs of the test journals.
+// Usage: BillScanner_Bench [iterations]
+public class BillScanner_Bench
+{
+    // The old Patterns.bill, kept here as the baseline
+    private static final Pattern regex = Pattern.compile( ".*((HRB \\d+)|(HCS HJRs \\d+)|(SS SCS SJRs \\d+ & \\d+)|(CCR SS SCS HCS HB \\d+)|(HBs \\d+ & \\d+)|(SS#?\\d+ SCR \\d+)|(HJR ?#?\\d+)|(HCB ?#?\\d+)|(SCR ?#?\\d+)|(HB ?#?\\d+)|(HCS HBs \\d+ & \\d+)|(SBs \\d+ & \\d+)|(SB ?#?\\d)|(HCS SCS SB ?#?\\d+)|(SS HB ?#?\\d+)|(HCS SB ?#?\\d+)|(SS SB ?#?\\d+)|(HCS HB ?#?\\d+)|(SS HCS ?#?\\d+)|(HCR ?#?\\d+)|(HR ?#?\\d+)).*" );
+
+    public static void main( String ... args ) throws IOException
+    {
+        int iterations = args.length > 0 ? Integer.parseInt( args[0] ) : 2000;
+        List<String> paragraphs = new ArrayList<>();
+        for ( Sanitizer.Paragraph pg : new Sanitizer().sanitize( "bench", loadJournal( "HB10_taken_up_amended_and_laid_over.txt" ) ) )
+        {
+            paragraphs.add( pg.contents() );
+        }
+
+        // Run each once untimed to warm up, then for real
+        for ( int round = 0; round < 2; round++ )
+        {
+            long found = 0;
+            long start = System.nanoTime();
+            for ( int i = 0; i < iterations; i++ )
+            {
+                for ( String pg : paragraphs )
+                {
+                    if(regex.matcher( pg ).matches()) {
+                        found++;
+                    }
+                }
+            }
+            long regexNanos = System.nanoTime() - start;
+
+            long refs = 0;
+            start = System.nanoTime();
+            for ( int i = 0; i < iterations; i++ )
+            {
+                for ( String pg : paragraphs )
+                {
+                    refs += BillScanner.scan( pg ).size();
+                }
+            }
+            long scannerNanos = System.nanoTime() - start;
+
+            if(round == 1) {
+                long total = (long) iterations * paragraphs.size();
+                System.err.printf( "regex:   %6.0f ns/paragraph (%d paragraphs with a bill)%n", (double) regexNanos / total, found / iterations );
+                System.err.printf( "scanner: %6.0f ns/paragraph (%d bill references)%n", (double) scannerNanos / total, refs / iterations );
+                System.err.printf( "speedup: %.1fx%n", (double) regexNanos / scannerNanos );
+            }
+        }
+    }
+
+    private static List<String> loadJournal( String name ) throws IOException
+    {
+        try ( InputStream in = BillScanner_Bench.class.getResourceAsStream( String.format( "/testdata/%s", name ) ) ) {
+            return Arrays.asList( new String( in.readAllBytes(), StandardCharsets.UTF_8 ).split( "\n" ) );
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package jefferson.analyzer;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.List;
+import java.util.stream.Collectors;
+
+public class BillScanner_Test
+{
+    public static void main(String ... argv) throws Exception
+    {
+        boolean assertsEnabled = false;
+        assert assertsEnabled = true;
+        if(!assertsEnabled) {
+            throw new AssertionError( "Assertions must be enabled to run tests." );
+        }
+
+        boolean passed = true;
+        Class<?> cls = MethodHandles.lookup().lookupClass();
+        for ( Method subject : cls.getDeclaredMethods() )
+        {
+            if( ! ( subject.getName().startsWith( "test" ) ) ) {
+                continue;
+            }
+            try {
+                subject.invoke( cls.getConstructors()[0].newInstance() );
+                System.err.printf("PASS: %s%n", subject.getName());
+            } catch( InvocationTargetException e ) {
+                if(e.getCause() != null && e.getCause() instanceof AssertionError ) {
+                    AssertionError ae = (AssertionError) e.getCause();
+                    System.err.printf("FAIL: %s: %s @ %s%n", subject.getName(), ae.getMessage(), ae.getStackTrace()[0].toString());
+                    passed = false;
+                } else {
+                    throw e;
+                }
+            }
+        }
+
+        if(!passed) {
+            System.exit( 1 );
+        }
+    }
+
+    public void testRecognizesEveryFormWeHaveSeen() {
+        // The forms the old Patterns.bill regex was written against
+        String[] forms = {
+                "HCR 1", "HR 1", "HCS HB 1158", "SS SB 213", "SB 185", "HCS SB 275", "SS HB 138", "HCS SCS SB 174",
+                "SBs 70 & 128", "HB 616", "HCS HBs 275 & 853", "SCR 1", "HCB 1", "SS SB 145", "HJR 30", "SS#2 SCR 14",
+                "HBs 243 & 544", "CCR SS SCS HCS HB 399", "SS SCS SJRs 14 & 9", "HCS HJRs 48, 46 & 47", "HRB 1",
+                "SS HCS#2" };
+        for ( String form : forms )
+        {
+            List<BillScanner.Reference> refs = BillScanner.scan( "Representative Smith moved that " + form + " be adopted." );
+            assertEq( 1, refs.size() );
+            assertEq( form, refs.get( 0 ).canonical() );
+        }
+    }
+
+    public void testFindsSubstitutesWithoutTheirBill() {
+        assertEq( List.of( "SS HCS#2", "SS HCS#2", "SS HCS#2", "SS HCS#2 HB 499" ),
+                BillScanner.scan( "SS HCS#2, SS HCS 2, SS HCS #2 and SS HCS#2 HB 499" ).stream()
+                        .map( BillScanner.Reference::canonical ).collect( Collectors.toList() ) );
+        BillScanner.Reference bare = BillScanner.scan( "SS HCS#2 was adopted" ).get( 0 );
+        assertEq( List.of( "SS", "HCS#2" ), bare.substitutes );
+        assert bare.kind == null && bare.keys().isEmpty() : "No bill in " + bare;
+        assertEq( 0, BillScanner.scan( "HCS#2 alone" ).size() );
+    }
+
+    public void testFindsAllReferencesWithOffsets() {
+        String text = "On motion of Representative Shaul (113), SS SCS SJRs 14 & 9 was truly agreed to, and HB 10 was laid over.";
+        List<BillScanner.Reference> refs = BillScanner.scan( text );
+
+        assertEq( 2, refs.size() );
+        assertEq( "SS SCS SJRs 14 & 9", text.substring( refs.get( 0 ).start, refs.get( 0 ).end ) );
+        assertEq( List.of( "SJR 14", "SJR 9" ), refs.get( 0 ).keys() );
+        assertEq( "HB 10", text.substring( refs.get( 1 ).start, refs.get( 1 ).end ) );
+    }
+
+    public void testNormalizesNumberFormats() {
+        assertEq( List.of( "HB 10", "HB 10", "HB 10", "HB 10" ),
+                BillScanner.scan( "HB 10, HB10, HB #10 and HB#10" ).stream()
+                        .map( BillScanner.Reference::canonical ).collect( Collectors.toList() ) );
+        assertEq( List.of( "HB 10" ), BillScanner.keys( "HCS HB 10 and SS HCS HB 10" ) );
+    }
+
+    public void testIgnoresLookalikes() {
+        assertEq( 0, BillScanner.scan( "HBO 10, SHB 1, the HB, HCS alone, 'ss 10', HB 10a" ).size() );
+    }
+
+    private void assertEq(Object expected, Object actual) {
+        assert expected.equals(actual) : String.format("Expected \n  %s \nto be \n  %s", actual, expected);
+    }
+}
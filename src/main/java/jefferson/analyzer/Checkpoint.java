@@ -0,0 +1,71 @@
+package jefferson.analyzer;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// How far a run over a session got, written after each journal so that the next run can pick up
+// from there, rather than analyzing every journal of the session again, see Main --checkpoint.
+//
+// Each journal is analyzed from scratch, with no motion left open from the one before, so the
+// only analyzer state carried from one journal to the next is the roster. The checkpoint has
+// that, so a resumed run analyzes the rest of the journals as the interrupted one would have, the
+// journals done so far, and how many actions were output for them. The actions themselves are in
+// the output, and are read back from there on resume.
+//
+// Like {"journals": ["jrn001.pdf.txt", ..], "roster": ["o'donnell", ..], "actions": 1234}
+public class Checkpoint
+{
+    // File names, in the order analyzed
+    public final List<String> journals;
+    // Normalized names, see Roster
+    public final List<String> roster;
+    // Number of actions output for the journals
+    public final int actions;
+
+    public Checkpoint( List<String> journals, List<String> roster, int actions )
+    {
+        this.journals = journals;
+        this.roster = roster;
+        this.actions = actions;
+    }
+
+    // Replaces any checkpoint already there in one go, so a run that dies half way through writing
+    // leaves the last one as it was
+    public void write( Path path ) throws IOException
+    {
+        Map<String, Object> out = new LinkedHashMap<>();
+        out.put( "journals", journals );
+        out.put( "roster", roster );
+        out.put( "actions", actions );
+        String json = new ObjectMapper().writeValueAsString( out );
+        Strip.writeAtomically( path, List.of( json ) );
+        Trace.debug( "checkpoint", "Checkpointed %d journals, %d actions to %s", journals.size(), actions, path );
+    }
+
+    public static Checkpoint read( Path path ) throws IOException
+    {
+        ObjectMapper mapper = new ObjectMapper();
+        JsonNode root = mapper.readTree( path.toFile() );
+        JsonNode actions = root.get( "actions" );
+        if(actions == null || !actions.isInt()) {
+            throw new IllegalArgumentException( "Not a checkpoint, there is no count of actions in it" );
+        }
+        return new Checkpoint( list( mapper, root, "journals" ), list( mapper, root, "roster" ), actions.intValue() );
+    }
+
+    private static List<String> list( ObjectMapper mapper, JsonNode root, String key ) throws IOException
+    {
+        JsonNode list = root.get( key );
+        if(list == null || !list.isArray()) {
+            throw new IllegalArgumentException( "Not a checkpoint, there is no " + key + " in it" );
+        }
+        return mapper.readerFor( new TypeReference<List<String>>() {} ).readValue( list );
+    }
+}
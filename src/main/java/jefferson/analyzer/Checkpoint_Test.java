@@ -0,0 +1,64 @@
+package jefferson.analyzer;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+public class Checkpoint_Test
+{
+    public static void main(String ... argv) throws Exception
+    {
+        boolean assertsEnabled = false;
+        assert assertsEnabled = true;
+        if(!assertsEnabled) {
+            throw new AssertionError( "Assertions must be enabled to run tests." );
+        }
+
+        boolean passed = true;
+        Class<?> cls = MethodHandles.lookup().lookupClass();
+        for ( Method subject : cls.getDeclaredMethods() )
+        {
+            if( ! ( subject.getName().startsWith( "test" ) ) ) {
+                continue;
+            }
+            try {
+                subject.invoke( cls.getConstructors()[0].newInstance() );
+                System.err.printf("PASS: %s%n", subject.getName());
+            } catch( InvocationTargetException e ) {
+                if(e.getCause() != null && e.getCause() instanceof AssertionError ) {
+                    AssertionError ae = (AssertionError) e.getCause();
+                    System.err.printf("FAIL: %s: %s @ %s%n", subject.getName(), ae.getMessage(), ae.getStackTrace()[0].toString());
+                    passed = false;
+                } else {
+                    throw e;
+                }
+            }
+        }
+
+        if(!passed) {
+            System.exit( 1 );
+        }
+    }
+
+    public void testReadsBackWhatWasWritten() throws Exception {
+        Checkpoint checkpoint = new Checkpoint( List.of( "jrn001.pdf.txt" ), List.of( "o'donnell", "smith" ), 7 );
+
+        Path file = Files.createTempFile( "checkpoint", ".json" );
+        try {
+            checkpoint.write( file );
+            Checkpoint read = Checkpoint.read( file );
+            assertEq( checkpoint.journals, read.journals );
+            assertEq( checkpoint.roster, read.roster );
+            assertEq( 7, read.actions );
+        } finally {
+            Files.delete( file );
+        }
+    }
+
+    private void assertEq(Object expected, Object actual) {
+        assert expected.equals(actual) : String.format("Expected \n  %s \nto be \n  %s", actual, expected);
+    }
+}
@@ -0,0 +1,213 @@
+package jefferson.analyzer;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import jefferson.domain.Action;
+import jefferson.domain.Motion;
+import jefferson.domain.MotionTable;
+import jefferson.domain.RepTable;
+import jefferson.domain.Vote;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+// Reads and writes the domain objects as JSON, field by field, straight to and from Jackson's
+// streams. Actions look like
+//
+//   {"action": "AdoptedByVote",
+//    "motion": {"type": "AMEND", "proposal": "House Amendment 2 of HCS HB 10", "relatesTo": {..}},
+//    "vote": {"ayes": [..], "noes": [..], "absent": [..], "absentWithLeave": [..], "present": [..]}}
+//
+// always with the fields in that order and the names of each vote group sorted, so the output of
+// two runs can be diffed. "action" is the name of the Analyzer action class; "relatesTo" and
+// "vote" are left out when there are none. Where an action was found is not written, so actions
+// read back have no source. Motions read are interned, see MotionTable.
+public class DomainModule extends SimpleModule
+{
+    // SimpleModule is Serializable, though this one is never serialized
+    private static final long serialVersionUID = 1L;
+
+    private static final Vote.Group[] GROUPS = Vote.Group.values();
+
+    public DomainModule()
+    {
+        this( new RepTable(), new MotionTable() );
+    }
+
+    // Votes read are interned in reps, and motions in motions
+    public DomainModule( RepTable reps, MotionTable motions )
+    {
+        super( "jefferson" );
+        addSerializer( Action.class, new StdSerializer<>( Action.class )
+        {
+            @Override
+            public void serialize( Action action, JsonGenerator json, SerializerProvider provider ) throws IOException
+            {
+                writeAction( json, action );
+            }
+        } );
+        addSerializer( Motion.class, new StdSerializer<>( Motion.class )
+        {
+            @Override
+            public void serialize( Motion motion, JsonGenerator json, SerializerProvider provider ) throws IOException
+            {
+                writeMotion( json, motion );
+            }
+        } );
+        addSerializer( Vote.class, new StdSerializer<>( Vote.class )
+        {
+            @Override
+            public void serialize( Vote vote, JsonGenerator json, SerializerProvider provider ) throws IOException
+            {
+                writeVote( json, vote );
+            }
+        } );
+        addDeserializer( Action.class, new StdDeserializer<>( Action.class )
+        {
+            @Override
+            public Action deserialize( JsonParser p, DeserializationContext ctxt ) throws IOException
+            {
+                return readAction( p, p.readValueAsTree(), reps, motions );
+            }
+        } );
+        addDeserializer( Motion.class, new StdDeserializer<>( Motion.class )
+        {
+            @Override
+            public Motion deserialize( JsonParser p, DeserializationContext ctxt ) throws IOException
+            {
+                return readMotion( p, p.readValueAsTree(), motions );
+            }
+        } );
+        addDeserializer( Vote.class, new StdDeserializer<>( Vote.class )
+        {
+            @Override
+            public Vote deserialize( JsonParser p, DeserializationContext ctxt ) throws IOException
+            {
+                return readVote( p.readValueAsTree(), reps );
+            }
+        } );
+    }
+
+    // A mapper with this module registered
+    public static ObjectMapper mapper()
+    {
+        return mapper( new RepTable(), new MotionTable() );
+    }
+
+    public static ObjectMapper mapper( RepTable reps, MotionTable motions )
+    {
+        return new ObjectMapper().registerModule( new DomainModule( reps, motions ) );
+    }
+
+    static void writeAction( JsonGenerator json, Action action ) throws IOException
+    {
+        json.writeStartObject();
+        json.writeStringField( "action", kind( action ) );
+        json.writeFieldName( "motion" );
+        writeMotion( json, action.motion() );
+        if(action.vote() != null) {
+            json.writeFieldName( "vote" );
+            writeVote( json, action.vote() );
+        }
+        json.writeEndObject();
+    }
+
+    static void writeMotion( JsonGenerator json, Motion motion ) throws IOException
+    {
+        json.writeStartObject();
+        json.writeStringField( "type", motion.type.name() );
+        json.writeStringField( "proposal", motion.proposal );
+        if(motion.relatesTo != null) {
+            json.writeFieldName( "relatesTo" );
+            writeMotion( json, motion.relatesTo );
+        }
+        json.writeEndObject();
+    }
+
+    static void writeVote( JsonGenerator json, Vote vote ) throws IOException
+    {
+        json.writeStartObject();
+        List<String> names = new ArrayList<>();
+        for ( Vote.Group group : GROUPS )
+        {
+            // Sorted, since the order of the sets depends on the order names were first seen in,
+            // which isn't fixed when journals are analyzed concurrently
+            names.clear();
+            names.addAll( vote.names( group ) );
+            names.sort( null );
+            json.writeArrayFieldStart( group.key );
+            for ( String name : names )
+            {
+                json.writeString( name );
+            }
+            json.writeEndArray();
+        }
+        json.writeEndObject();
+    }
+
+    private static Action readAction( JsonParser p, JsonNode node, RepTable reps, MotionTable motions ) throws IOException
+    {
+        String kind = node.path( "action" ).asText();
+        Motion motion = readMotion( p, node.get( "motion" ), motions );
+        Vote vote = node.hasNonNull( "vote" ) ? readVote( node.get( "vote" ), reps ) : null;
+        Action action = action( kind, motion, vote );
+        if(action == null) {
+            throw JsonMappingException.from( p, "Unknown kind of action: '" + kind + "'" );
+        }
+        return action;
+    }
+
+    // What the action is called in the output
+    static String kind( Action action )
+    {
+        return action.getClass().getSimpleName();
+    }
+
+    // The action called kind, with no source; null if there is no such kind
+    static Action action( String kind, Motion motion, Vote vote )
+    {
+        switch( kind ) {
+        case "AdoptedByVote": return new Analyzer.AdoptedByVote( motion, vote, null );
+        case "DefeatedByVote": return new Analyzer.DefeatedByVote( motion, vote, null );
+        case "AdoptWithoutVote": return new Analyzer.AdoptWithoutVote( motion, null );
+        case "DefeatedWithoutVote": return new Analyzer.DefeatedWithoutVote( motion, null );
+        default: return null;
+        }
+    }
+
+    private static Motion readMotion( JsonParser p, JsonNode node, MotionTable motions ) throws IOException
+    {
+        if(node == null || !node.hasNonNull( "type" ) || !node.hasNonNull( "proposal" )) {
+            throw JsonMappingException.from( p, "Not a motion: " + node );
+        }
+        JsonNode relatesTo = node.get( "relatesTo" );
+        return motions.intern( Motion.Type.valueOf( node.get( "type" ).asText() ), node.get( "proposal" ).asText(),
+                relatesTo == null || relatesTo.isNull() ? null : readMotion( p, relatesTo, motions ) );
+    }
+
+    private static Vote readVote( JsonNode node, RepTable reps )
+    {
+        String[][] names = new String[GROUPS.length][];
+        for ( Vote.Group group : GROUPS )
+        {
+            JsonNode list = node.path( group.key );
+            String[] groupNames = new String[list.size()];
+            for ( int i = 0; i < groupNames.length; i++ )
+            {
+                groupNames[i] = list.get( i ).asText();
+            }
+            names[group.ordinal()] = groupNames;
+        }
+        return new Vote( reps, names[Vote.Group.AYES.ordinal()], names[Vote.Group.NOES.ordinal()], names[Vote.Group.ABSENT.ordinal()],
+                names[Vote.Group.ABSENT_WITH_LEAVE.ordinal()], names[Vote.Group.PRESENT.ordinal()] );
+    }
+}
@@ -0,0 +1,82 @@
+package jefferson.analyzer;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jefferson.domain.Action;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.Iterator;
+import java.util.List;
+
+public class DomainModule_Test
+{
+    public static void main(String ... argv) throws Exception
+    {
+        boolean assertsEnabled = false;
+        assert assertsEnabled = true;
+        if(!assertsEnabled) {
+            throw new AssertionError( "Assertions must be enabled to run tests." );
+        }
+
+        boolean passed = true;
+        Class<?> cls = MethodHandles.lookup().lookupClass();
+        for ( Method subject : cls.getDeclaredMethods() )
+        {
+            if( ! ( subject.getName().startsWith( "test" ) ) ) {
+                continue;
+            }
+            try {
+                subject.invoke( cls.getConstructors()[0].newInstance() );
+                System.err.printf("PASS: %s%n", subject.getName());
+            } catch( InvocationTargetException e ) {
+                if(e.getCause() != null && e.getCause() instanceof AssertionError ) {
+                    AssertionError ae = (AssertionError) e.getCause();
+                    System.err.printf("FAIL: %s: %s @ %s%n", subject.getName(), ae.getMessage(), ae.getStackTrace()[0].toString());
+                    passed = false;
+                } else {
+                    throw e;
+                }
+            }
+        }
+
+        if(!passed) {
+            System.exit( 1 );
+        }
+    }
+
+    public void testWritesFieldsInOrderAndReadsThemBack() throws Exception {
+        List<Action> actions = Fixtures.hb10();
+        ObjectMapper mapper = DomainModule.mapper();
+        String json = mapper.writeValueAsString( actions );
+
+        // Same every time, field order included
+        assertEq( json, mapper.writeValueAsString( mapper.readValue( json, new TypeReference<List<Action>>() {} ) ) );
+        assertEq( actions, mapper.readValue( json, new TypeReference<List<Action>>() {} ) );
+
+        for ( JsonNode action : mapper.readTree( json ) )
+        {
+            assertEq( action.has( "vote" ) ? "action,motion,vote" : "action,motion", fields( action ) );
+            assertEq( action.get( "motion" ).has( "relatesTo" ) ? "type,proposal,relatesTo" : "type,proposal", fields( action.get( "motion" ) ) );
+            if(action.has( "vote" )) {
+                assertEq( "ayes,noes,absent,absentWithLeave,present", fields( action.get( "vote" ) ) );
+            }
+        }
+    }
+
+    private static String fields( JsonNode node )
+    {
+        StringBuilder sb = new StringBuilder();
+        for ( Iterator<String> it = node.fieldNames(); it.hasNext(); )
+        {
+            sb.append( sb.length() > 0 ? "," : "" ).append( it.next() );
+        }
+        return sb.toString();
+    }
+
+    private void assertEq(Object expected, Object actual) {
+        assert expected.equals(actual) : String.format("Expected \n  %s \nto be \n  %s", actual, expected);
+    }
+}
@@ -0,0 +1,108 @@
+package jefferson.analyzer;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jefferson.Sanitizer.Paragraph;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Errors an analyzer recovered from rather than throwing, see Analyzer(Roster, ErrorReport): what
+// went wrong, where, and what the analyzer was doing at the time. Safe for concurrent use, so all
+// the analyzers of a run can share one.
+public class ErrorReport
+{
+    public static class Entry
+    {
+        public final Source source;
+        // The analyzer state the paragraph was handed to
+        public final String state;
+        public final String paragraph;
+        public final String message;
+
+        Entry( Source source, String state, String paragraph, String message )
+        {
+            this.source = source;
+            this.state = state;
+            this.paragraph = paragraph;
+            this.message = message;
+        }
+
+        @Override
+        public String toString()
+        {
+            return "Entry{" + "source=" + source + ", state=" + state + ", message='" + message + '\'' + '}';
+        }
+    }
+
+    private final List<Entry> errors = new ArrayList<>();
+
+    synchronized void add( Paragraph pg, Enum<?> state, RuntimeException e )
+    {
+        errors.add( new Entry( pg.source, state.name(), pg.contents(), String.valueOf( e.getMessage() ) ) );
+    }
+
+    // Add the errors of another report, like that of one journal once it is merged
+    public void addAll( ErrorReport other )
+    {
+        List<Entry> entries;
+        synchronized ( other ) {
+            entries = new ArrayList<>( other.errors );
+        }
+        synchronized ( this ) {
+            errors.addAll( entries );
+        }
+    }
+
+    public synchronized int size()
+    {
+        return errors.size();
+    }
+
+    // Number of errors in the journal at the given URL
+    public synchronized int count( String sourceUrl )
+    {
+        int count = 0;
+        for ( Entry entry : errors )
+        {
+            if(entry.source.sourceUrl.equals( sourceUrl )) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    // By journal and line, as journals may be analyzed in any order
+    public synchronized List<Entry> errors()
+    {
+        List<Entry> sorted = new ArrayList<>( errors );
+        sorted.sort( Comparator.comparing( ( Entry e ) -> e.source.sourceUrl ).thenComparingInt( e -> e.source.lineNo ) );
+        return sorted;
+    }
+
+    // Like [{"journal": "https://..", "line": 1201, "state": "IN_VOTE", "message": "..", "paragraph": ".."}, ..]
+    public List<Map<String, Object>> toMap()
+    {
+        List<Map<String, Object>> out = new ArrayList<>();
+        for ( Entry entry : errors() )
+        {
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put( "journal", entry.source.sourceUrl );
+            map.put( "line", entry.source.lineNo );
+            map.put( "state", entry.state );
+            map.put( "message", entry.message );
+            map.put( "paragraph", entry.paragraph );
+            out.add( map );
+        }
+        return out;
+    }
+
+    public void write( Path path ) throws IOException
+    {
+        new ObjectMapper().writerWithDefaultPrettyPrinter().writeValue( path.toFile(), toMap() );
+    }
+}
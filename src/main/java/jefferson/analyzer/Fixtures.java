@@ -0,0 +1,50 @@
+package jefferson.analyzer;
+
+import jefferson.domain.Action;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Scanner;
+
+// What the tests in this package share: the journals in /testdata, and the actions found in them
+class Fixtures
+{
+    static final String HB10 = "HB10_taken_up_amended_and_laid_over.txt";
+
+    static List<String> loadJournal( String name ) throws IOException
+    {
+        try( InputStream in = Fixtures.class.getResourceAsStream( String.format( "/testdata/%s", name ) )) {
+            if(in == null) {
+                throw new AssertionError( String.format("Can't find %s", name) );
+            }
+            Scanner scanner = new Scanner( in ).useDelimiter( "\\A" );
+            if(!scanner.hasNext()) {
+                throw new AssertionError( String.format("%s is empty?", name) );
+            }
+            return Arrays.asList( scanner.next().split( "\n" ) );
+        }
+    }
+
+    // The actions in the HB10 journal, analyzed on their own
+    static List<Action> hb10() throws IOException
+    {
+        return new Analyzer().analyze( "http://example.com", loadJournal( HB10 ) );
+    }
+
+    // The actions written to a temp file, for the caller to delete
+    static Path write( List<Action> actions, ActionWriter.Format format ) throws IOException
+    {
+        Path path = Files.createTempFile( "actions", ".json" );
+        try ( ActionWriter out = ActionWriter.open( path, true, format ) ) {
+            for ( Action action : actions )
+            {
+                out.write( action );
+            }
+        }
+        return path;
+    }
+}
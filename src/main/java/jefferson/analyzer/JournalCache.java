@@ -0,0 +1,206 @@
+package jefferson.analyzer;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jefferson.domain.Action;
+import jefferson.domain.Vote;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+// On-disk cache of the actions found in each journal, so re-running over a session only analyzes
+// the journals that changed, see Main --cache. Entries are keyed by the digest of the journal file,
+// the digest of the rules it is analyzed by, RULES below, and the digest of the names the roster
+// knows before the journal, as the vote parser goes about vote blocks differently depending on
+// those; changing any of them means a miss.
+//
+// Each entry is one file, <journal digest>-<rules digest>-<roster digest>.json, holding the
+// actions as DomainModule writes them. Entries are touched when used, and when the cache is closed the least
+// recently used are deleted until it is back under its size limit. Safe for concurrent use.
+//
+// Entries don't record how the journal was analyzed, so they must hold what Analyzer gives
+// analyzing it in one go; Analyzer.analyzeSegmented(..) may find differently, see Main
+// --split-journals, and its actions should only be cached once checked against that.
+//
+// The rep names in cached votes are taught to the roster, as analyzing the journal would have.
+public class JournalCache
+{
+    // Bump this when changing what entries hold
+    private static final int FORMAT = 2;
+    // FORMAT, Analyzer.VERSION and every pattern in Analyzer.Patterns, with the phrases each needs.
+    // Changes to anything else that decides what actions a journal gives have to bump VERSION; that
+    // is Analyzer itself, VoteParser, Sanitizer and MappedJournal, BillScanner, AhoCorasick, Names,
+    // and Motion and Vote.
+    static final String RULES = Strip.sha256( rules() );
+
+    private final Path dir;
+    private final long maxBytes;
+    // Where actions read from the cache are interned, like those analyzed
+    private final Session session;
+    private final ObjectMapper mapper = DomainModule.mapper();
+    private final AtomicInteger hits = new AtomicInteger();
+    private final AtomicInteger misses = new AtomicInteger();
+
+    public JournalCache( Path dir, long maxBytes ) throws IOException
+    {
+        this( dir, maxBytes, new Session() );
+    }
+
+    public JournalCache( Path dir, long maxBytes, Session session ) throws IOException
+    {
+        this.dir = Files.createDirectories( dir );
+        this.maxBytes = maxBytes;
+        this.session = session;
+    }
+
+    // The journal's actions from the cache if they are in it, otherwise from analyze, and then
+    // cached. Entries that can't be read are treated as missing. The roster is as analyze will have
+    // it, and must not learn anything until the returned future is done, see Roster.view().
+    public CompletableFuture<List<Action>> get( Path journal, Roster roster, Executor pool, Supplier<CompletableFuture<List<Action>>> analyze )
+    {
+        return get( journal, roster, pool, analyze, actions -> true );
+    }
+
+    // Same, but only caching what analyze gives if keep says so
+    public CompletableFuture<List<Action>> get( Path journal, Roster roster, Executor pool, Supplier<CompletableFuture<List<Action>>> analyze,
+            Predicate<List<Action>> keep )
+    {
+        String names = Strip.sha256( String.join( "\n", roster.names() ) );
+        return CompletableFuture.supplyAsync( () -> {
+            try {
+                return dir.resolve( Strip.sha256( journal ) + "-" + RULES + "-" + names + ".json" );
+            } catch( IOException e ) {
+                throw new UncheckedIOException( e );
+            }
+        }, pool ).thenCompose( entry -> {
+            List<Action> cached = read( entry, roster );
+            if(cached != null) {
+                hits.incrementAndGet();
+                Trace.debug( "cache", "%s: %d actions from %s", journal.getFileName(), cached.size(), entry.getFileName() );
+                return CompletableFuture.completedFuture( cached );
+            }
+            misses.incrementAndGet();
+            return analyze.get().thenApply( actions -> {
+                if(keep.test( actions )) {
+                    write( entry, actions );
+                }
+                return actions;
+            } );
+        } );
+    }
+
+    private List<Action> read( Path entry, Roster roster )
+    {
+        if(!Files.exists( entry )) {
+            return null;
+        }
+        List<Action> actions;
+        try {
+            actions = DomainModule.mapper( session.reps(), session.motions() ).readValue( entry.toFile(), new TypeReference<List<Action>>() {} );
+            Files.setLastModifiedTime( entry, FileTime.fromMillis( System.currentTimeMillis() ) );
+        } catch( IOException e ) {
+            Trace.warn( "cache", "Ignoring unreadable cache entry %s: %s", entry, e );
+            return null;
+        }
+        for ( Action action : actions )
+        {
+            if(action.vote() != null) {
+                for ( Vote.Group group : Vote.Group.values() )
+                {
+                    action.vote().names( group ).forEach( roster::learn );
+                }
+            }
+        }
+        return actions;
+    }
+
+    private void write( Path entry, List<Action> actions )
+    {
+        try {
+            Strip.writeAtomically( entry, List.of( mapper.writeValueAsString( actions ) ) );
+        } catch( IOException e ) {
+            throw new UncheckedIOException( e );
+        }
+    }
+
+    // Evict least recently used entries until the cache fits in its limit, and report how it did
+    public void close() throws IOException
+    {
+        List<Path> entries;
+        try ( Stream<Path> files = Files.list( dir ) ) {
+            entries = files.filter( p -> p.getFileName().toString().endsWith( ".json" ) ).collect( Collectors.toList() );
+        }
+        long[] sizes = new long[entries.size()];
+        FileTime[] used = new FileTime[entries.size()];
+        long total = 0;
+        for ( int i = 0; i < entries.size(); i++ )
+        {
+            sizes[i] = Files.size( entries.get( i ) );
+            used[i] = Files.getLastModifiedTime( entries.get( i ) );
+            total += sizes[i];
+        }
+        Integer[] order = new Integer[entries.size()];
+        Arrays.setAll( order, i -> i );
+        Arrays.sort( order, Comparator.comparing( i -> used[i] ) );
+        int evicted = 0;
+        for ( int i = 0; i < order.length && total > maxBytes; i++ )
+        {
+            Files.deleteIfExists( entries.get( order[i] ) );
+            total -= sizes[order[i]];
+            evicted++;
+        }
+
+        int lookups = hits.get() + misses.get();
+        Trace.info( "cache", String.format( "%d of %d journals from cache (%.0f%% hit rate), %d entries evicted, %d left using %.1f MB",
+                hits.get(), lookups, lookups == 0 ? 0.0 : 100.0 * hits.get() / lookups, evicted, entries.size() - evicted, total / 1e6 ) );
+    }
+
+    public int hits()
+    {
+        return hits.get();
+    }
+
+    public int misses()
+    {
+        return misses.get();
+    }
+
+    private static String rules()
+    {
+        StringBuilder sb = new StringBuilder( "format " ).append( FORMAT ).append( '\n' );
+        sb.append( "version " ).append( Analyzer.VERSION ).append( '\n' );
+        // By name, as there is no telling what order reflection gives them in
+        Field[] fields = Analyzer.Patterns.class.getDeclaredFields();
+        Arrays.sort( fields, Comparator.comparing( Field::getName ) );
+        try {
+            for ( Field field : fields )
+            {
+                if(field.getType() == Pattern.class && Modifier.isStatic( field.getModifiers() )) {
+                    Pattern pattern = (Pattern) field.get( null );
+                    sb.append( field.getName() ).append( ' ' ).append( pattern.flags() ).append( ' ' ).append( pattern.pattern() )
+                            .append( ' ' ).append( Arrays.toString( Analyzer.Patterns.keywords.get( pattern ) ) ).append( '\n' );
+                }
+            }
+        } catch( IllegalAccessException e ) {
+            throw new IllegalStateException( e );
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,113 @@
+package jefferson.analyzer;
+
+import jefferson.domain.Action;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class JournalCache_Test
+{
+    public static void main(String ... argv) throws Exception
+    {
+        boolean assertsEnabled = false;
+        assert assertsEnabled = true;
+        if(!assertsEnabled) {
+            throw new AssertionError( "Assertions must be enabled to run tests." );
+        }
+
+        boolean passed = true;
+        Class<?> cls = MethodHandles.lookup().lookupClass();
+        for ( Method subject : cls.getDeclaredMethods() )
+        {
+            if( ! ( subject.getName().startsWith( "test" ) ) ) {
+                continue;
+            }
+            try {
+                subject.invoke( cls.getConstructors()[0].newInstance() );
+                System.err.printf("PASS: %s%n", subject.getName());
+            } catch( InvocationTargetException e ) {
+                if(e.getCause() != null && e.getCause() instanceof AssertionError ) {
+                    AssertionError ae = (AssertionError) e.getCause();
+                    System.err.printf("FAIL: %s: %s @ %s%n", subject.getName(), ae.getMessage(), ae.getStackTrace()[0].toString());
+                    passed = false;
+                } else {
+                    throw e;
+                }
+            }
+        }
+
+        if(!passed) {
+            System.exit( 1 );
+        }
+    }
+
+    public void testServesUnchangedJournalsFromCache() throws Exception {
+        List<String> lines = Fixtures.loadJournal( Fixtures.HB10 );
+        Path dir = Files.createTempDirectory( "cache" );
+        Path journal = dir.resolve( "jrn001.pdf.txt" );
+        Files.write( journal, lines );
+        Path entries = dir.resolve( "entries" );
+        AtomicInteger analyzed = new AtomicInteger();
+        try {
+            List<Action> expected = new Analyzer().analyze( "http://example.com", lines );
+            for ( int run = 0; run < 2; run++ )
+            {
+                JournalCache cache = new JournalCache( entries, 1_000_000 );
+                Roster roster = new Roster();
+                List<Action> actions = cache.get( journal, roster, Runnable::run, () -> {
+                    analyzed.incrementAndGet();
+                    return CompletableFuture.completedFuture( new Analyzer( roster ).analyze( "http://example.com", lines ) );
+                } ).join();
+                cache.close();
+
+                assertEq( 1, analyzed.get() );
+                assertEq( run, cache.hits() );
+                assertEq( expected.size(), actions.size() );
+                for ( int i = 0; i < actions.size(); i++ )
+                {
+                    assertEq( expected.get( i ).motion(), actions.get( i ).motion() );
+                    assert Objects.equals( expected.get( i ).vote(), actions.get( i ).vote() ) : "Vote of action " + i + " differs";
+                }
+                // Either way, the roster has learned who voted
+                assert roster.size() > 100 : "Roster has only " + roster.size() + " names";
+            }
+
+            // Knowing other names, the vote parser might go about it differently
+            Roster roster = new Roster();
+            roster.learn( "Smith" );
+            JournalCache cache = new JournalCache( entries, 1_000_000 );
+            cache.get( journal, roster, Runnable::run, () -> {
+                analyzed.incrementAndGet();
+                return CompletableFuture.completedFuture( new Analyzer( roster ).analyze( "http://example.com", lines ) );
+            } ).join();
+            cache.close();
+            assertEq( 2, analyzed.get() );
+            assertEq( 0, cache.hits() );
+
+            // Too small to keep anything
+            new JournalCache( entries, 0 ).close();
+            assertEq( 0, entries.toFile().list().length );
+        } finally {
+            if(Files.exists( entries )) {
+                for ( String name : entries.toFile().list() )
+                {
+                    Files.delete( entries.resolve( name ) );
+                }
+                Files.delete( entries );
+            }
+            Files.delete( journal );
+            Files.delete( dir );
+        }
+    }
+
+    private void assertEq(Object expected, Object actual) {
+        assert expected.equals(actual) : String.format("Expected \n  %s \nto be \n  %s", actual, expected);
+    }
+}
@@ -0,0 +1,170 @@
+package jefferson.analyzer;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jefferson.domain.Names;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+// The rep names of a session, normalized, see Names. The vote parser learns names as it goes, and once it
+// knows enough of them it can pick vote blocks apart by name rather than relying on them being
+// well formatted, see VoteParser.
+//
+// A roster can be loaded up front, from a roster file or from a previous run's output, so that is
+// possible from the first vote of the session; and it can be shared between analyzers, so names
+// learned by one are known to all. Safe for concurrent use.
+//
+// Analyzers running concurrently shouldn't share one, though, as what each learns would then depend
+// on how far the others have got. Give each a view() instead, and fold what it learned back in with
+// learnFrom(..) once it is done, in the order they would have run one after the other. A view only
+// gives what running after the others would have if no names were learned in between, see
+// upToDateWith(..); otherwise analyze again with a new view.
+//
+// Roster files have one normalized name per line.
+public class Roster
+{
+    private final Set<String> names;
+    // For a view, how many names it started out with
+    private final int viewed;
+    // Automaton over names, rebuilt when names have been learned since; see matcher()
+    private volatile AhoCorasick matcher;
+    // Number of names when last loaded or saved, to tell if there is anything new to save
+    private volatile int saved;
+
+    public Roster()
+    {
+        this.names = ConcurrentHashMap.newKeySet();
+        this.viewed = 0;
+    }
+
+    private Roster( Roster of )
+    {
+        this.names = ConcurrentHashMap.newKeySet();
+        this.names.addAll( of.names );
+        this.viewed = names.size();
+        // Same names, so the same automaton, until the view learns one
+        AhoCorasick current = of.matcher;
+        this.matcher = current != null && current.size() == names.size() ? current : null;
+    }
+
+    // Load a roster file; if there is none, the roster starts out empty
+    public static Roster load( Path path ) throws IOException
+    {
+        Roster roster = new Roster();
+        if(Files.exists( path )) {
+            for ( String line : Files.readAllLines( path ) )
+            {
+                if(!line.isBlank()) {
+                    roster.learn( line.strip() );
+                }
+            }
+        }
+        roster.saved = roster.size();
+        return roster;
+    }
+
+    // Learn the names of everyone who voted in a previous run's output
+    public void learnFromOutput( Path outputJson ) throws IOException
+    {
+        JsonNode root = new ObjectMapper().readTree( outputJson.toFile() );
+        if(root.isObject()) {
+            // The normalized format, see ActionWriter.Format, which lists them
+            for ( JsonNode name : root.path( "reps" ) )
+            {
+                learn( name.asText() );
+            }
+            return;
+        }
+        for ( JsonNode action : root )
+        {
+            JsonNode vote = action.get( "vote" );
+            if(vote == null) {
+                continue;
+            }
+            for ( JsonNode group : vote )
+            {
+                for ( JsonNode name : group )
+                {
+                    learn( name.asText() );
+                }
+            }
+        }
+    }
+
+    // Write the roster out, if it has learned anything since it was last loaded or saved
+    public synchronized void save( Path path ) throws IOException
+    {
+        int size = size();
+        if(size == saved && Files.exists( path )) {
+            return;
+        }
+        List<String> lines = new ArrayList<>( size );
+        for ( String name : names() )
+        {
+            lines.add( name + "\n" );
+        }
+        Strip.writeAtomically( path, lines );
+        saved = lines.size();
+        Trace.debug( "roster", "Saved %d rep names to %s", lines.size(), path );
+    }
+
+    // Returns true if the name is new
+    public boolean learn( String name )
+    {
+        return names.add( Names.normalize( name ) );
+    }
+
+    // A roster knowing the names this one knows now, and then only those it learns itself
+    public Roster view()
+    {
+        return new Roster( this );
+    }
+
+    // Whether this view started out knowing all the roster it was taken of knows now, so that
+    // taking it now would have made no difference. Rosters only learn, so this is down to counting.
+    public boolean upToDateWith( Roster roster )
+    {
+        return viewed == roster.size();
+    }
+
+    // Learn every name the other roster knows, like a view of this one once it is done with
+    public void learnFrom( Roster other )
+    {
+        names.addAll( other.names );
+    }
+
+    // The normalized names, sorted
+    public List<String> names()
+    {
+        return new ArrayList<>( new TreeSet<>( names ) );
+    }
+
+    public int size()
+    {
+        return names.size();
+    }
+
+    // Finds known names in text, comparing them as Names does. Patterns are the normalized names. Callers should
+    // hold on to the returned matcher for as long as they use pattern ids from it.
+    AhoCorasick matcher()
+    {
+        AhoCorasick current = matcher;
+        if(current == null || current.size() != names.size()) {
+            synchronized ( this ) {
+                current = matcher;
+                if(current == null || current.size() != names.size()) {
+                    current = new AhoCorasick( new ArrayList<>( names ), true );
+                    matcher = current;
+                }
+            }
+        }
+        return current;
+    }
+}
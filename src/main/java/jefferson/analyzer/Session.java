@@ -0,0 +1,28 @@
+package jefferson.analyzer;
+
+import jefferson.domain.MotionTable;
+import jefferson.domain.RepTable;
+
+// What the analyzers of a session share besides the roster: the tables rep names and motions are
+// interned in, so votes and actions found in different journals share them. Unlike the roster,
+// these only decide which instance an analyzer gets, never what it finds, so all the analyzers
+// of a run can share one however many run at once. Safe for concurrent use.
+//
+// Ids are handed out in the order names and motions are first interned, so with journals analyzed
+// concurrently, see Main --threads, they depend on which got there first. Only with one thread
+// are they the same from run to run; nothing written out uses them.
+public class Session
+{
+    private final RepTable reps = new RepTable();
+    private final MotionTable motions = new MotionTable();
+
+    public RepTable reps()
+    {
+        return reps;
+    }
+
+    public MotionTable motions()
+    {
+        return motions;
+    }
+}
@@ -0,0 +1,228 @@
+package jefferson.analyzer;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jefferson.domain.Action;
+import jefferson.domain.Motion;
+import jefferson.domain.Names;
+import jefferson.domain.Vote;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+// Inverted index over the actions of a session: for each rep, every vote they cast, and for each
+// bill, every action taken on it. Actions are identified by their position in the session output,
+// so this is written next to it and answers "how did X vote" without reading the output at all.
+//
+// Reps are keyed by their normalized name, see Names. Each rep's votes are kept as one int per
+// vote, the action id shifted left three bits with the vote group in the low bits.
+//
+// Bills are keyed as BillScanner.Reference.keys() has them, like "HB 10", and include actions on
+// amendments and other motions relating to the bill. Not thread safe.
+public class SessionIndex
+{
+    private static final Vote.Group[] GROUPS = Vote.Group.values();
+
+    public static class Posting
+    {
+        public final int action;
+        public final Vote.Group group;
+
+        Posting( int action, Vote.Group group )
+        {
+            this.action = action;
+            this.group = group;
+        }
+
+        @Override
+        public String toString()
+        {
+            return action + ":" + group;
+        }
+    }
+
+    private static class Rep
+    {
+        // As first written
+        final String name;
+        final IntList postings = new IntList();
+
+        Rep( String name )
+        {
+            this.name = name;
+        }
+    }
+
+    private final Map<String, Rep> reps = new TreeMap<>();
+    private final Map<String, IntList> bills = new TreeMap<>();
+    private int actions;
+
+    // Index the action with the given id; ids must be added in ascending order
+    public void add( int id, Action action )
+    {
+        if(id < actions) {
+            throw new IllegalArgumentException( String.format( "Action %d added after action %d", id, actions - 1 ) );
+        }
+        actions = id + 1;
+
+        Vote vote = action.vote();
+        if(vote != null) {
+            for ( Vote.Group group : GROUPS )
+            {
+                for ( String name : vote.names( group ) )
+                {
+                    reps.computeIfAbsent( Names.normalize( name ), k -> new Rep( name ) ).postings.add( id << 3 | group.ordinal() );
+                }
+            }
+        }
+
+        List<String> seen = new ArrayList<>( 2 );
+        for ( Motion motion = action.motion(); motion != null; motion = motion.relatesTo )
+        {
+            for ( String key : BillScanner.keys( motion.proposal ) )
+            {
+                if(!seen.contains( key )) {
+                    seen.add( key );
+                    bills.computeIfAbsent( key, k -> new IntList() ).add( id );
+                }
+            }
+        }
+    }
+
+    // Every vote the rep cast, in action order; empty if we know of no votes from them
+    public List<Posting> votesOf( String rep )
+    {
+        Rep entry = reps.get( Names.normalize( rep ) );
+        if(entry == null) {
+            return Collections.emptyList();
+        }
+        List<Posting> out = new ArrayList<>( entry.postings.size );
+        for ( int i = 0; i < entry.postings.size; i++ )
+        {
+            int posting = entry.postings.values[i];
+            out.add( new Posting( posting >>> 3, GROUPS[posting & 7] ) );
+        }
+        return out;
+    }
+
+    // Ids of the actions on a bill, in order, like actionsOn( "HB 10" )
+    public int[] actionsOn( String bill )
+    {
+        IntList ids = bills.get( bill );
+        return ids == null ? new int[0] : Arrays.copyOf( ids.values, ids.size );
+    }
+
+    // Normalized names of every rep who voted
+    public Set<String> reps()
+    {
+        return Collections.unmodifiableSet( reps.keySet() );
+    }
+
+    public Set<String> bills()
+    {
+        return Collections.unmodifiableSet( bills.keySet() );
+    }
+
+    // Like {"reps": {"o'donnell": {"name": "O'Donnell", "ayes": [3, 9], "noes": [5], ..}, ..},
+    //       "bills": {"HB 10": [0, 1, 2, ..], ..}}
+    public Map<String, Object> toMap()
+    {
+        Map<String, Object> repsOut = new LinkedHashMap<>();
+        for ( Map.Entry<String, Rep> entry : reps.entrySet() )
+        {
+            Map<String, Object> rep = new LinkedHashMap<>();
+            rep.put( "name", entry.getValue().name );
+            IntList[] byGroup = new IntList[GROUPS.length];
+            IntList postings = entry.getValue().postings;
+            for ( int i = 0; i < postings.size; i++ )
+            {
+                int group = postings.values[i] & 7;
+                if(byGroup[group] == null) {
+                    byGroup[group] = new IntList();
+                }
+                byGroup[group].add( postings.values[i] >>> 3 );
+            }
+            for ( Vote.Group group : GROUPS )
+            {
+                IntList ids = byGroup[group.ordinal()];
+                rep.put( group.key, ids == null ? new int[0] : Arrays.copyOf( ids.values, ids.size ) );
+            }
+            repsOut.put( entry.getKey(), rep );
+        }
+
+        Map<String, Object> billsOut = new LinkedHashMap<>();
+        for ( Map.Entry<String, IntList> entry : bills.entrySet() )
+        {
+            billsOut.put( entry.getKey(), Arrays.copyOf( entry.getValue().values, entry.getValue().size ) );
+        }
+
+        Map<String, Object> out = new LinkedHashMap<>();
+        out.put( "reps", repsOut );
+        out.put( "bills", billsOut );
+        return out;
+    }
+
+    public void write( Path path ) throws IOException
+    {
+        new ObjectMapper().writeValue( path.toFile(), toMap() );
+    }
+
+    // Read an index written by write(..)
+    public static SessionIndex read( Path path ) throws IOException
+    {
+        JsonNode root = new ObjectMapper().readTree( path.toFile() );
+        SessionIndex index = new SessionIndex();
+        for ( Iterator<Map.Entry<String, JsonNode>> it = root.get( "reps" ).fields(); it.hasNext(); )
+        {
+            Map.Entry<String, JsonNode> entry = it.next();
+            Rep rep = new Rep( entry.getValue().get( "name" ).asText() );
+            // Merge the groups back into action order
+            IntList postings = rep.postings;
+            for ( Vote.Group group : GROUPS )
+            {
+                for ( JsonNode id : entry.getValue().get( group.key ) )
+                {
+                    postings.add( id.asInt() << 3 | group.ordinal() );
+                    index.actions = Math.max( index.actions, id.asInt() + 1 );
+                }
+            }
+            Arrays.sort( postings.values, 0, postings.size );
+            index.reps.put( entry.getKey(), rep );
+        }
+        for ( Iterator<Map.Entry<String, JsonNode>> it = root.get( "bills" ).fields(); it.hasNext(); )
+        {
+            Map.Entry<String, JsonNode> entry = it.next();
+            IntList ids = new IntList();
+            for ( JsonNode id : entry.getValue() )
+            {
+                ids.add( id.asInt() );
+                index.actions = Math.max( index.actions, id.asInt() + 1 );
+            }
+            index.bills.put( entry.getKey(), ids );
+        }
+        return index;
+    }
+
+    private static class IntList
+    {
+        int[] values = new int[8];
+        int size;
+
+        void add( int value )
+        {
+            if(size == values.length) {
+                values = Arrays.copyOf( values, size * 2 );
+            }
+            values[size++] = value;
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package jefferson.analyzer;
+
+import jefferson.domain.Action;
+import jefferson.domain.Vote;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+public class SessionIndex_Test
+{
+    public static void main(String ... argv) throws Exception
+    {
+        boolean assertsEnabled = false;
+        assert assertsEnabled = true;
+        if(!assertsEnabled) {
+            throw new AssertionError( "Assertions must be enabled to run tests." );
+        }
+
+        boolean passed = true;
+        Class<?> cls = MethodHandles.lookup().lookupClass();
+        for ( Method subject : cls.getDeclaredMethods() )
+        {
+            if( ! ( subject.getName().startsWith( "test" ) ) ) {
+                continue;
+            }
+            try {
+                subject.invoke( cls.getConstructors()[0].newInstance() );
+                System.err.printf("PASS: %s%n", subject.getName());
+            } catch( InvocationTargetException e ) {
+                if(e.getCause() != null && e.getCause() instanceof AssertionError ) {
+                    AssertionError ae = (AssertionError) e.getCause();
+                    System.err.printf("FAIL: %s: %s @ %s%n", subject.getName(), ae.getMessage(), ae.getStackTrace()[0].toString());
+                    passed = false;
+                } else {
+                    throw e;
+                }
+            }
+        }
+
+        if(!passed) {
+            System.exit( 1 );
+        }
+    }
+
+    public void testIndexAgreesWithVotes() throws Exception {
+        List<Action> actions = Fixtures.hb10();
+        SessionIndex index = new SessionIndex();
+        for ( int i = 0; i < actions.size(); i++ )
+        {
+            index.add( i, actions.get( i ) );
+        }
+
+        Path file = Files.createTempFile( "index", ".json" );
+        try {
+            index.write( file );
+            SessionIndex read = SessionIndex.read( file );
+            for ( SessionIndex candidate : new SessionIndex[]{ index, read } )
+            {
+                int votes = 0;
+                for ( String rep : candidate.reps() )
+                {
+                    for ( SessionIndex.Posting posting : candidate.votesOf( rep ) )
+                    {
+                        assertEq( posting.group, actions.get( posting.action ).vote().voteOfRep( rep ) );
+                        votes++;
+                    }
+                }
+                int expected = 0;
+                for ( Action action : actions )
+                {
+                    if(action.vote() != null) {
+                        for ( Vote.Group group : Vote.Group.values() )
+                        {
+                            expected += action.vote().names( group ).size();
+                        }
+                    }
+                }
+                assertEq( expected, votes );
+                assertEq( actions.size(), candidate.actionsOn( "HB 10" ).length );
+                assertEq( 0, candidate.actionsOn( "HB 11" ).length );
+            }
+        } finally {
+            Files.delete( file );
+        }
+    }
+
+    private void assertEq(Object expected, Object actual) {
+        assert expected.equals(actual) : String.format("Expected \n  %s \nto be \n  %s", actual, expected);
+    }
+}
@@ -2,6 +2,8 @@ package jefferson.analyzer;
 
 public class Source
 {
+    // Every paragraph of a journal shares the one instance of its URL, see Sanitizer and
+    // MappedJournal, so this is a reference rather than a copy
     public final String sourceUrl;
     public final int lineNo;
 
@@ -1,47 +1,415 @@
 package jefferson.analyzer;
 
-import org.apache.pdfbox.cos.COSDocument;
-import org.apache.pdfbox.io.RandomAccessFile;
-import org.apache.pdfbox.pdfparser.PDFParser;
+import org.apache.pdfbox.io.MemoryUsageSetting;
 import org.apache.pdfbox.pdmodel.PDDocument;
 import org.apache.pdfbox.text.PDFTextStripper;
 
-import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.StandardOpenOption;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
+// Extracts the text of every journal PDF in a session directory, writing jrnNNN.pdf.txt next to
+// each PDF. Usage: Strip <session dir> [threads] [pages per shard]
+//
+// Each extracted journal gets a jrnNNN.pdf.sha256 sidecar holding the digest of the PDF it came
+// from, so re-runs skip journals whose PDF is unchanged and re-extract ones that were re-fetched.
+//
+// Large journals are split into page range shards that are extracted concurrently, each from its
+// own temp-file backed PDDocument, so one huge end-of-session journal does not become the critical
+// path. Shards are appended to the output in page order as they finish, so the text is the same as
+// extracting in one go, and the journal's text is never held in memory as a whole.
 public class Strip
 {
-    public static void main(String args[]) throws IOException
+    static final int DEFAULT_PAGES_PER_SHARD = 50;
+
+    public static void main(String ... args) throws IOException
+    {
+        if(args.length < 1) {
+            System.err.println("Usage: Strip <session dir> [threads] [pages per shard]");
+            System.exit( 2 );
+        }
+        Path sessionDir = Path.of( args[0] );
+        int threads = args.length > 1 ? Integer.parseInt( args[1] ) : Runtime.getRuntime().availableProcessors();
+        int pagesPerShard = args.length > 2 ? Integer.parseInt( args[2] ) : DEFAULT_PAGES_PER_SHARD;
+
+        List<Path> pdfs =
+                Files.list( sessionDir )
+                        .filter( p -> p.getFileName().toString().endsWith( ".pdf" ) )
+                        .sorted()
+                        .collect( Collectors.toList() );
+
+        long start = System.nanoTime();
+        ExecutorService pool = Executors.newFixedThreadPool( threads );
+        List<CompletableFuture<Result>> results = new ArrayList<>();
+        for ( Path pdf : pdfs )
+        {
+            results.add( strip( pdf, pagesPerShard, pool ) );
+        }
+
+        int extracted = 0, skipped = 0, failed = 0;
+        long pages = 0;
+        try {
+            for ( int i = 0; i < pdfs.size(); i++ )
+            {
+                try {
+                    Result result = results.get( i ).join();
+                    Trace.info( "extracted", "%s", result );
+                    if(result.skipped) {
+                        skipped++;
+                    } else {
+                        extracted++;
+                        pages += result.pages;
+                    }
+                } catch( CompletionException e ) {
+                    // Keep going, one bad PDF should not cost us the rest of the session
+                    Trace.warn( "extract-failed", "%s: FAILED: %s", pdfs.get( i ).getFileName(), e.getCause() );
+                    failed++;
+                }
+            }
+        } finally {
+            pool.shutdown();
+        }
+
+        double seconds = (System.nanoTime() - start) / 1e9;
+        Trace.info( "summary", String.format( "Extracted %d, skipped %d, failed %d journals; %d pages in %.1fs on %d threads (%.1f pages/s)",
+                extracted, skipped, failed, pages, seconds, threads, pages / seconds ) );
+        if(failed > 0) {
+            System.exit( 1 );
+        }
+    }
+
+    // Extract one journal. None of the stages block a pool thread waiting on another, so this is
+    // safe to call for every journal in the session up front on a fixed size pool.
+    static CompletableFuture<Result> strip( Path pdf, int pagesPerShard, Executor pool )
+    {
+        Path out = pdf.resolveSibling( String.format( "%s.txt", pdf.getFileName() ) );
+        Path checksum = pdf.resolveSibling( String.format( "%s.sha256", pdf.getFileName() ) );
+
+        return CompletableFuture.supplyAsync( () -> {
+            try {
+                String digest = sha256( pdf );
+                if(Files.exists( out ) && Files.exists( checksum ) && Files.readString( checksum ).strip().equals( digest )) {
+                    return null;
+                }
+                return digest;
+            } catch( IOException e ) {
+                throw new UncheckedIOException( e );
+            }
+        }, pool ).thenCompose( digest -> {
+            if(digest == null) {
+                return CompletableFuture.completedFuture( Result.skipped( pdf ) );
+            }
+            long start = System.nanoTime();
+            return CompletableFuture.supplyAsync( () -> firstShard( pdf, pagesPerShard, pool ), pool ).thenCompose( shards -> {
+                // Each shard is appended as soon as it and those before it are done, so only
+                // shards that finish ahead of their turn are held in memory
+                Path tmp;
+                Writer writer;
+                try {
+                    tmp = tempFileFor( out );
+                    writer = Files.newBufferedWriter( tmp );
+                } catch( IOException e ) {
+                    throw new UncheckedIOException( e );
+                }
+                CompletableFuture<Long> written = CompletableFuture.supplyAsync( () -> append( writer, shards.first ), pool );
+                for ( CompletableFuture<String> shard : shards.rest )
+                {
+                    written = written.thenCombineAsync( shard, ( chars, text ) -> chars + append( writer, text ), pool );
+                }
+                int count = shards.rest.size() + 1;
+                return written.handleAsync( ( chars, failure ) -> {
+                    try {
+                        writer.close();
+                        if(failure == null) {
+                            Files.move( tmp, out, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE );
+                            // Only record the digest once the text is in place, so a crash in between means we redo the work
+                            writeAtomically( checksum, List.of( digest ) );
+                        }
+                        Files.deleteIfExists( tmp );
+                    } catch( IOException e ) {
+                        if(failure == null) {
+                            throw new UncheckedIOException( e );
+                        }
+                        failure.addSuppressed( e );
+                    }
+                    if(failure != null) {
+                        throw failure instanceof CompletionException ? (CompletionException) failure : new CompletionException( failure );
+                    }
+                    return new Result( pdf, shards.pages, count, chars, System.nanoTime() - start );
+                }, pool );
+            } );
+        } );
+    }
+
+    // A journal's page count and first shard of text, along with the rest of its shards, which
+    // are started as soon as the first shard's document says how many pages there are, rather
+    // than loading the PDF once more just to count them
+    private static class Shards
+    {
+        final int pages;
+        final String first;
+        final List<CompletableFuture<String>> rest;
+
+        Shards( int pages, String first, List<CompletableFuture<String>> rest )
+        {
+            this.pages = pages;
+            this.first = first;
+            this.rest = rest;
+        }
+    }
+
+    private static Shards firstShard( Path pdf, int pagesPerShard, Executor pool )
+    {
+        try ( PDDocument doc = PDDocument.load( pdf.toFile(), MemoryUsageSetting.setupTempFileOnly() ) ) {
+            int pages = doc.getNumberOfPages();
+            List<CompletableFuture<String>> rest = new ArrayList<>();
+            for ( int first = pagesPerShard + 1; first <= pages; first += pagesPerShard )
+            {
+                int firstPage = first;
+                int last = Math.min( pages, first + pagesPerShard - 1 );
+                rest.add( CompletableFuture.supplyAsync( () -> parsePdf( pdf, firstPage, last ), pool ) );
+            }
+            return new Shards( pages, pages == 0 ? "" : text( doc, 1, Math.min( pages, pagesPerShard ) ), rest );
+        } catch( IOException e ) {
+            throw new UncheckedIOException( e );
+        }
+    }
+
+    // Number of chars written
+    private static long append( Writer writer, String text )
+    {
+        try {
+            writer.write( text );
+            return text.length();
+        } catch( IOException e ) {
+            throw new UncheckedIOException( e );
+        }
+    }
+
+    // Extract a journal and push its text, line by line, to the consumer as PDFBox produces it,
+    // rather than building the whole text up front. If textOutput is given, the text is also
+    // written there, the same as main(..) would.
+    public static void stream( Path pdf, Consumer<String> lines, Path textOutput ) throws IOException
+    {
+        if(textOutput == null) {
+            try ( PDDocument doc = PDDocument.load( pdf.toFile(), MemoryUsageSetting.setupTempFileOnly() );
+                  LineWriter writer = new LineWriter( lines, null ) ) {
+                new PDFTextStripper().writeText( doc, writer );
+            }
+            return;
+        }
+
+        Path tmp = tempFileFor( textOutput );
+        try {
+            try ( PDDocument doc = PDDocument.load( pdf.toFile(), MemoryUsageSetting.setupTempFileOnly() );
+                  LineWriter writer = new LineWriter( lines, Files.newBufferedWriter( tmp ) ) ) {
+                new PDFTextStripper().writeText( doc, writer );
+            }
+            Files.move( tmp, textOutput, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE );
+        } finally {
+            Files.deleteIfExists( tmp );
+        }
+    }
+
+    // Splits text written to it on \n, the same way Main splits a .txt, and hands each line on
+    private static class LineWriter extends Writer
+    {
+        private final Consumer<String> lines;
+        private final Writer tee;
+        private final StringBuilder line = new StringBuilder();
+
+        LineWriter( Consumer<String> lines, Writer tee )
+        {
+            this.lines = lines;
+            this.tee = tee;
+        }
+
+        @Override
+        public void write( char[] cbuf, int off, int len ) throws IOException
+        {
+            if(tee != null) {
+                tee.write( cbuf, off, len );
+            }
+            int start = off;
+            for ( int i = off; i < off + len; i++ )
+            {
+                if(cbuf[i] == '\n') {
+                    line.append( cbuf, start, i - start );
+                    lines.accept( line.toString() );
+                    line.setLength( 0 );
+                    start = i + 1;
+                }
+            }
+            line.append( cbuf, start, off + len - start );
+        }
+
+        @Override
+        public void flush() throws IOException
+        {
+            if(tee != null) {
+                tee.flush();
+            }
+        }
+
+        @Override
+        public void close() throws IOException
+        {
+            if(line.length() > 0) {
+                lines.accept( line.toString() );
+                line.setLength( 0 );
+            }
+            if(tee != null) {
+                tee.close();
+            }
+        }
+    }
+
+    // Extract pages first..last, inclusive and 1-based. Each call loads its own document, backed
+    // by temp files rather than the heap, so concurrent shards don't share parser state.
+    private static String parsePdf( Path path, int first, int last )
+    {
+        try ( PDDocument doc = PDDocument.load( path.toFile(), MemoryUsageSetting.setupTempFileOnly() ) ) {
+            return text( doc, first, last );
+        } catch( IOException e ) {
+            throw new UncheckedIOException( e );
+        }
+    }
+
+    private static String text( PDDocument doc, int first, int last ) throws IOException
+    {
+        PDFTextStripper stripper = new PDFTextStripper();
+        stripper.setStartPage( first );
+        stripper.setEndPage( last );
+        return stripper.getText( doc );
+    }
+
+    // Write to a temp file in the same directory and rename it into place, so readers never see
+    // a half-written file and an interrupted run leaves no partial output behind.
+    static void writeAtomically( Path target, List<String> parts ) throws IOException
     {
-        List<Path> unstripped =
-                Files.list( Path.of( "./journals/181" ) ).filter(
-                        p -> p.getFileName().toString().endsWith( ".pdf" ) && !Files.exists(
-                                p.getParent().resolve( p.getFileName() + ".txt" ) ) ).collect(
-                        Collectors.toList() );
+        Path tmp = tempFileFor( target );
+        try {
+            try ( Writer writer = Files.newBufferedWriter( tmp ) ) {
+                for ( String part : parts )
+                {
+                    writer.write( part );
+                }
+            }
+            Files.move( tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE );
+        } finally {
+            Files.deleteIfExists( tmp );
+        }
+    }
 
-        for ( Path in : unstripped )
+    // A temp file in the same directory as target, to be moved into place once written. Temp files
+    // are only readable by their owner, which the move would keep, so give it the permissions
+    // target has, or rw-r--r-- if there is no target yet.
+    static Path tempFileFor( Path target ) throws IOException
+    {
+        Path tmp = Files.createTempFile( target.toAbsolutePath().getParent(), target.getFileName().toString(), ".tmp" );
+        try {
+            Files.setPosixFilePermissions( tmp, Files.exists( target )
+                    ? Files.getPosixFilePermissions( target ) : PosixFilePermissions.fromString( "rw-r--r--" ) );
+        } catch( UnsupportedOperationException e ) {
+            // No POSIX permissions here, so none to get wrong
+        } catch( IOException e ) {
+            Files.deleteIfExists( tmp );
+            throw e;
+        }
+        return tmp;
+    }
+
+    static String sha256( Path file ) throws IOException
+    {
+        MessageDigest digest = sha256();
+        try ( InputStream in = new DigestInputStream( Files.newInputStream( file ), digest ) )
         {
-            Path out = in.getParent().resolve( String.format("%s.txt", in.getFileName().toString()) );
-            System.err.printf("Parsing %s..%n", in);
-            String raw = parsePdf( in );
+            in.transferTo( OutputStream.nullOutputStream() );
+        }
+        return hex( digest.digest() );
+    }
+
+    static String sha256( String text )
+    {
+        return hex( sha256().digest( text.getBytes( StandardCharsets.UTF_8 ) ) );
+    }
 
-            Files.writeString( out, raw,
-                    StandardOpenOption.CREATE_NEW );
+    private static MessageDigest sha256()
+    {
+        try {
+            return MessageDigest.getInstance( "SHA-256" );
+        } catch( NoSuchAlgorithmException e ) {
+            throw new IllegalStateException( e );
         }
+    }
 
+    private static String hex( byte[] bytes )
+    {
+        StringBuilder hex = new StringBuilder();
+        for ( byte b : bytes )
+        {
+            hex.append( String.format( "%02x", b ) );
+        }
+        return hex.toString();
     }
 
-    private static String parsePdf(Path path) throws IOException {
-        PDFParser parser = new PDFParser(new RandomAccessFile( new File(path.toString()), "r"));
-        parser.parse();
-        try ( COSDocument cosDoc = parser.getDocument()) {
-            PDFTextStripper stripper = new PDFTextStripper();
-            return stripper.getText( new PDDocument(cosDoc) );
+    static class Result
+    {
+        final Path pdf;
+        final boolean skipped;
+        final int pages;
+        final int shards;
+        final long chars;
+        final long nanos;
+
+        Result( Path pdf, int pages, int shards, long chars, long nanos )
+        {
+            this( pdf, false, pages, shards, chars, nanos );
+        }
+
+        private Result( Path pdf, boolean skipped, int pages, int shards, long chars, long nanos )
+        {
+            this.pdf = pdf;
+            this.skipped = skipped;
+            this.pages = pages;
+            this.shards = shards;
+            this.chars = chars;
+            this.nanos = nanos;
+        }
+
+        static Result skipped( Path pdf )
+        {
+            return new Result( pdf, true, 0, 0, 0, 0 );
+        }
+
+        @Override
+        public String toString()
+        {
+            if(skipped) {
+                return String.format( "%s: unchanged, skipped", pdf.getFileName() );
+            }
+            double seconds = nanos / 1e9;
+            return String.format( "%s: %d pages in %d shards, %d chars in %.2fs (%.1f pages/s)",
+                    pdf.getFileName(), pages, shards, chars, seconds, pages / seconds );
         }
     }
 }
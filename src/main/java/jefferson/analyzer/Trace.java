@@ -0,0 +1,153 @@
+package jefferson.analyzer;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.util.MinimalPrettyPrinter;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+// Diagnostic output. Messages go to stderr, and optionally to a trace file with one JSON object per
+// line, so stdout is left for the output document alone.
+//
+// Each message has a level and is dropped unless that level is enabled. The checks happen before
+// any formatting, so leaving debug and trace calls in hot paths costs next to nothing. Pass
+// primitives as their own checks around the call if boxing them would matter.
+//
+// Configure with -Djefferson.trace=<level> for stderr and -Djefferson.trace.file=<path> for the
+// trace file, which records everything down to -Djefferson.trace.file.level, TRACE by default.
+public final class Trace
+{
+    public enum Level
+    {
+        OFF,
+        // Something looks wrong, but we carried on
+        WARN,
+        // Progress and summaries
+        INFO,
+        // Decisions the analyzer makes, like each action found
+        DEBUG,
+        // Everything, like each paragraph and state transition
+        TRACE
+    }
+
+    private static Level consoleLevel = Level.INFO;
+    private static Level fileLevel = Level.OFF;
+    // Level the trace file records at when there is one
+    private static Level traceLevel = Level.TRACE;
+    // Most verbose of the two levels above, so enabled(..) is a single comparison
+    private static int threshold = Level.INFO.ordinal();
+    private static JsonGenerator file;
+
+    static {
+        String console = System.getProperty( "jefferson.trace" );
+        String path = System.getProperty( "jefferson.trace.file" );
+        Level level = Level.valueOf( System.getProperty( "jefferson.trace.file.level", "TRACE" ).toUpperCase() );
+        configure( console == null ? Level.INFO : Level.valueOf( console.toUpperCase() ),
+                path == null ? null : Path.of( path ), level );
+    }
+
+    private Trace()
+    {
+    }
+
+    // Call before starting any work; this is not safe to change while other threads are tracing
+    public static synchronized void configure( Level console, Path tracePath, Level traceLevel )
+    {
+        close();
+        consoleLevel = console;
+        Trace.traceLevel = traceLevel;
+        fileLevel = tracePath == null ? Level.OFF : traceLevel;
+        threshold = Math.max( consoleLevel.ordinal(), fileLevel.ordinal() );
+        if(tracePath != null) {
+            try {
+                file = new JsonFactory().createGenerator( Files.newBufferedWriter( tracePath ) );
+                file.setPrettyPrinter( new MinimalPrettyPrinter( "\n" ) );
+            } catch( IOException e ) {
+                throw new UncheckedIOException( e );
+            }
+        }
+    }
+
+    // Change the console level or the trace file, leaving whichever is null as it was, so options
+    // given on the command line override just their own property
+    public static synchronized void configure( Level console, Path tracePath )
+    {
+        if(tracePath != null) {
+            configure( console == null ? consoleLevel : console, tracePath, traceLevel );
+        } else if(console != null) {
+            consoleLevel = console;
+            threshold = Math.max( consoleLevel.ordinal(), fileLevel.ordinal() );
+        }
+    }
+
+    // Flush and close the trace file, if there is one
+    public static synchronized void close()
+    {
+        if(file != null) {
+            try {
+                file.close();
+            } catch( IOException e ) {
+                throw new UncheckedIOException( e );
+            } finally {
+                file = null;
+            }
+        }
+    }
+
+    public static boolean enabled( Level level )
+    {
+        return level.ordinal() <= threshold;
+    }
+
+    public static void warn( String event, String message ) { if(enabled( Level.WARN )) { log( Level.WARN, event, message ); } }
+    public static void warn( String event, String format, Object a ) { if(enabled( Level.WARN )) { log( Level.WARN, event, String.format( format, a ) ); } }
+    public static void warn( String event, String format, Object a, Object b ) { if(enabled( Level.WARN )) { log( Level.WARN, event, String.format( format, a, b ) ); } }
+    public static void warn( String event, String format, Object a, Object b, Object c ) { if(enabled( Level.WARN )) { log( Level.WARN, event, String.format( format, a, b, c ) ); } }
+
+    public static void info( String event, String message ) { if(enabled( Level.INFO )) { log( Level.INFO, event, message ); } }
+    public static void info( String event, String format, Object a ) { if(enabled( Level.INFO )) { log( Level.INFO, event, String.format( format, a ) ); } }
+    public static void info( String event, String format, Object a, Object b ) { if(enabled( Level.INFO )) { log( Level.INFO, event, String.format( format, a, b ) ); } }
+    public static void info( String event, String format, Object a, Object b, Object c ) { if(enabled( Level.INFO )) { log( Level.INFO, event, String.format( format, a, b, c ) ); } }
+
+    public static void debug( String event, String message ) { if(enabled( Level.DEBUG )) { log( Level.DEBUG, event, message ); } }
+    public static void debug( String event, String format, Object a ) { if(enabled( Level.DEBUG )) { log( Level.DEBUG, event, String.format( format, a ) ); } }
+    public static void debug( String event, String format, Object a, Object b ) { if(enabled( Level.DEBUG )) { log( Level.DEBUG, event, String.format( format, a, b ) ); } }
+    public static void debug( String event, String format, Object a, Object b, Object c ) { if(enabled( Level.DEBUG )) { log( Level.DEBUG, event, String.format( format, a, b, c ) ); } }
+
+    public static void trace( String event, String message ) { if(enabled( Level.TRACE )) { log( Level.TRACE, event, message ); } }
+    public static void trace( String event, String format, Object a ) { if(enabled( Level.TRACE )) { log( Level.TRACE, event, String.format( format, a ) ); } }
+    public static void trace( String event, String format, Object a, Object b ) { if(enabled( Level.TRACE )) { log( Level.TRACE, event, String.format( format, a, b ) ); } }
+    public static void trace( String event, String format, Object a, Object b, Object c ) { if(enabled( Level.TRACE )) { log( Level.TRACE, event, String.format( format, a, b, c ) ); } }
+
+    private static void log( Level level, String event, String message )
+    {
+        if(level.ordinal() <= consoleLevel.ordinal()) {
+            if(level == Level.WARN) {
+                System.err.println( "WARN: " + message );
+            } else {
+                System.err.println( message );
+            }
+        }
+        if(level.ordinal() <= fileLevel.ordinal()) {
+            synchronized ( Trace.class ) {
+                if(file == null) {
+                    return;
+                }
+                try {
+                    file.writeStartObject();
+                    file.writeNumberField( "time", System.currentTimeMillis() );
+                    file.writeStringField( "level", level.name() );
+                    file.writeStringField( "thread", Thread.currentThread().getName() );
+                    file.writeStringField( "event", event );
+                    file.writeStringField( "message", message );
+                    file.writeEndObject();
+                } catch( IOException e ) {
+                    throw new UncheckedIOException( e );
+                }
+            }
+        }
+    }
+}
@@ -1,15 +1,13 @@
 package jefferson.analyzer;
 
 import jefferson.Sanitizer;
+import jefferson.domain.Names;
+import jefferson.domain.RepTable;
 import jefferson.domain.Vote;
 
 import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.Comparator;
+import java.util.BitSet;
 import java.util.List;
-import java.util.SortedSet;
-import java.util.TreeSet;
-import java.util.stream.Collectors;
 
 public class VoteParser
 {
@@ -26,11 +24,8 @@ public class VoteParser
             @Override
             State analyze( VoteParser ctx, Sanitizer.Paragraph pg )
             {
-                if(pg.source.lineNo == 352 && pg.source.sourceUrl.contains( "004" )) {
-                    System.out.println("!!");
-                }
                 if( isVoteGroupHeader( pg ) ) {
-                    String[] parts = pg.contents.split( ":", 2 );
+                    String[] parts = pg.contents().split( ":", 2 );
                     String voteGroup = parts[0].toLowerCase().trim();
                     String expected = parts[1];
 
@@ -39,7 +34,7 @@ public class VoteParser
                     // and if that happens, break the part after the number off and parse it
                     // as a vote block
                     if(expected.toLowerCase().matches( "\\s*\\d+\\s+[a-z]+.*" )) {
-                        System.err.println("Vote block on same line, breaking apart..");
+                        Trace.debug( "vote-block-inline", "Vote block on same line as its header at %s, breaking apart..", pg.source );
                         parts = expected.trim().split( " ", 2 );
                         expected = parts[0];
                         String voteBlock = parts[1];
@@ -60,7 +55,7 @@ public class VoteParser
                     }
                     return SEEK;
                 }
-                if(pg.contents.contains( "VACANCIES" )) {
+                if(pg.contents().contains( "VACANCIES" )) {
                     return SEEK;
                 }
                 // Once we reach something we don't recognize as voting, exit vote parsing
@@ -72,39 +67,35 @@ public class VoteParser
             State analyze( VoteParser ctx, Sanitizer.Paragraph pg )
             {
                 if( isVoteGroupHeader( pg ) ) {
-                    System.err.println(ctx.vote.currentVoteGroup);
-                    System.err.println(Arrays.toString(ctx.vote.votesInCurrentGroup()));
-                    System.err.printf("%s/%s%n", ctx.vote.votesInCurrentGroup().length, ctx.vote.expectedVotesInCurrentGroup());
+                    Trace.warn( "vote-group-short", "%s: found %s/%s votes", ctx.vote.currentVoteGroup,
+                            ctx.vote.votesInCurrentGroup().size(), ctx.vote.expectedVotesInCurrentGroup() );
                     throw new RuntimeException( "Encountered vote group header before finding all expected votes." );
                 }
-                List<String> out = null;
+                List<String> group = ctx.vote.votesInCurrentGroup();
+                int before = group.size();
                 // Once we have enough known reps, the known rep parse method is more reliable
-                // This will return null if it fails, so we'll go back to the split method.
+                // This will return false if it fails, so we'll go back to the split method.
                 // If that fails we run the known rep method again and get the error out of it.
-                if(ctx.knownReps.size() > 100) {
-                    out = ctx.parseUsingKnownRepMethod( pg );
+                boolean parsed = false;
+                if(ctx.roster.size() > 100) {
+                    parsed = ctx.parseUsingKnownRepMethod( pg, group );
                 }
-                if(out == null) {
-                    out = ctx.parseUsingSplitMethod( pg );
-                    System.err.println("Parsed using split method.");
+                if(!parsed) {
+                    parsed = ctx.parseUsingSplitMethod( pg, group );
+                    Trace.trace( "vote-parse", "Parsed using split method." );
                 } else {
-                    System.err.println("Parsed using known rep method.");
+                    Trace.trace( "vote-parse", "Parsed using known rep method." );
                 }
-                if(!sanityCheck( out )) {
-                    out = ctx.parseUsingKnownRepMethod( pg );
-                    if(!sanityCheck( out )) {
-                        System.err.println(out);
-                        throw new RuntimeException( "Failed sanity check after known rep method" );
-                    }
+                if(!parsed && !ctx.parseUsingKnownRepMethod( pg, group )) {
+                    throw new RuntimeException( String.format( "Failed to parse %s vote block at %s: '%s'", ctx.vote.currentVoteGroup, pg.source, pg.text ) );
                 }
-                ctx.addVotesToCurrentGroup( out.toArray(new String[]{}) );
-                if(ctx.vote.votesInCurrentGroup().length == ctx.vote.expectedVotesInCurrentGroup()) {
+                ctx.learn( group, before );
+                if(group.size() == ctx.vote.expectedVotesInCurrentGroup()) {
                     return SEEK;
                 }
-                if(ctx.vote.votesInCurrentGroup().length > ctx.vote.expectedVotesInCurrentGroup()) {
+                if(group.size() > ctx.vote.expectedVotesInCurrentGroup()) {
                     throw new RuntimeException( String.format("Expected %d votes but found more: %s",
-                            ctx.vote.expectedVotesInCurrentGroup(),
-                            Arrays.toString(ctx.vote.votesInCurrentGroup())) );
+                            ctx.vote.expectedVotesInCurrentGroup(), group) );
                 }
 
                 // There must've been a page break in the middle of the vote block, keep looking for votes.
@@ -114,38 +105,83 @@ public class VoteParser
 
         private static boolean isVoteGroupHeader( Sanitizer.Paragraph pg )
         {
-            return pg.contents.contains( "AYES" ) || pg.contents.contains( "NOES" )
-                    || pg.contents.contains( "PRESENT" ) || pg.contents.contains( "ABSENT" )
-                    || pg.contents.contains( "ABSENT WITH LEAVE" );
+            return pg.contents().contains( "AYES" ) || pg.contents().contains( "NOES" )
+                    || pg.contents().contains( "PRESENT" ) || pg.contents().contains( "ABSENT" )
+                    || pg.contents().contains( "ABSENT WITH LEAVE" );
         }
 
         abstract State analyze( VoteParser ctx, Sanitizer.Paragraph pg );
     }
 
-    // Most vote blocks will be well formatted, with two spaces between each name. This lets us
-    // parse by just splitting and cleaning up
-    private List<String> parseUsingSplitMethod( Sanitizer.Paragraph pg )
+    // Most vote blocks will be well formatted, with two or more spaces between each name. This lets
+    // us parse by scanning for those gaps, adding each name to the group as we find it.
+    //
+    // Names are a word of letters, apostrophes, . or -, optionally followed by more words, separated by
+    // single spaces, that may also have digits: "Bland Manlove", "Franks Jr.", "Brown 27". This
+    // throws if it finds anything else. Rep names have at most three words; if we find a longer
+    // one, some gap was too narrow to split on, so this takes back the names it added and returns
+    // false.
+    boolean parseUsingSplitMethod( Sanitizer.Paragraph pg, List<String> group )
     {
-        List<String> out = new ArrayList<>();
-        String[] parts = pg.contents.split( " {2}" );
-        for ( String part : parts )
-        {
-            if(part.isBlank()) {
-                continue;
+        CharSequence text = pg.text;
+        int length = text.length();
+        int before = group.size();
+        boolean tooLong = false;
+        int i = 0;
+        while( true ) {
+            while( i < length && text.charAt( i ) <= ' ' ) {
+                i++;
             }
-            part = part.trim();
-            if(!part.toLowerCase().matches( "[a-z’'.-]+( [a-z0-9’'.-]+)*" )) {
-                System.err.println(out);
-                System.err.printf("L: '%s' / %s%n", pg.contents, vote);
-                System.out.println(Arrays.toString( vote.votesInCurrentGroup() ));
-                System.out.println(vote.currentVoteGroup);
-                System.out.println(vote.expectedVotesInCurrentGroup());
-                System.out.println(vote.votesInCurrentGroup().length);
-                throw new RuntimeException( "!!" );
+            if(i == length) {
+                break;
             }
-            out.add( part );
+            int start = i;
+            int end = i;
+            int words = 1;
+            boolean firstWord = true;
+            for ( ; i < length; i++ )
+            {
+                char c = text.charAt( i );
+                if(c <= ' ') {
+                    // A single space between words, or the gap after the name
+                    if(c == ' ' && i + 1 < length && text.charAt( i + 1 ) > ' ') {
+                        words++;
+                        firstWord = false;
+                        continue;
+                    }
+                    break;
+                }
+                if(!isNameChar( c, firstWord )) {
+                    Trace.warn( "vote-parse", "Parsed so far: %s, in '%s'", group.subList( before, group.size() ), pg.text );
+                    throw new RuntimeException( String.format( "Not a rep name in %s vote block at %s: '%s' (%d/%d votes found)",
+                            vote.currentVoteGroup, pg.source, nameAt( text, start ), before, vote.expectedVotesInCurrentGroup() ) );
+                }
+                end = i + 1;
+            }
+            tooLong |= words > 3;
+            group.add( text.subSequence( start, end ).toString() );
         }
-        return out;
+        if(tooLong) {
+            group.subList( before, group.size() ).clear();
+            return false;
+        }
+        return true;
+    }
+
+    private static boolean isNameChar( char c, boolean firstWord )
+    {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || Names.isApostrophe( c ) || c == '.' || c == '-'
+                || (!firstWord && c >= '0' && c <= '9');
+    }
+
+    // For error messages, the text from start up to the next gap
+    private static String nameAt( CharSequence text, int start )
+    {
+        int end = start;
+        while( end < text.length() && !(text.charAt( end ) == ' ' && end + 1 < text.length() && text.charAt( end + 1 ) == ' ') ) {
+            end++;
+        }
+        return text.subSequence( start, end ).toString();
     }
 
     // This uses the list of known reps to try to work them out of the paragraph.
@@ -153,59 +189,83 @@ public class VoteParser
     // this as a fallback if the split method doesn't work. That way the split method can build
     // up a list of known reps, hopefully, and once we hit a paragraph the split method fails at
     // hopefully we've got enough known reps to use this method.
-    private List<String> parseUsingKnownRepMethod( Sanitizer.Paragraph pg ) {
-        if(pg.source.lineNo == 559) {
-            System.out.println("!");
-        }
+    //
+    // All known names are found in one pass over the paragraph. Some shorter names are substrings
+    // of longer ones, so where matches overlap the leftmost one wins, and of those the longest.
+    // Everything not covered by a name must be whitespace.
+    private boolean parseUsingKnownRepMethod( Sanitizer.Paragraph pg, List<String> group ) {
+        AhoCorasick roster = this.roster.matcher();
+        CharSequence content = pg.text;
+        // End of the longest name starting at each position, or 0, and which name that is
+        int[] longest = new int[content.length()];
+        int[] names = new int[content.length()];
+        roster.scan( content, ( pattern, start, end ) -> {
+            if(end > longest[start]) {
+                longest[start] = end;
+                names[start] = pattern;
+            }
+        } );
+
         List<String> out = new ArrayList<>();
-        String content = pg.contents.toLowerCase();
-        for ( String knownRep : knownReps ) {
-            int index = content.indexOf( knownRep );
-            if(index == -1) {
+        BitSet seen = new BitSet( roster.size() );
+        int i = 0;
+        while( i < longest.length ) {
+            if(longest[i] == 0) {
+                if(!Character.isWhitespace( content.charAt( i ) )) {
+                    Trace.trace( "vote-parse", "Known rep vote parse method failed, unknown content at %d: %s", i, content );
+                    return false;
+                }
+                i++;
                 continue;
             }
-            out.add( knownRep );
-            content = content.replace( knownRep, "" );
-        }
-
-        if(!content.isBlank()) {
-            System.err.println("Split vote parse method failed, remaining content: " + content);
-            return null;
+            int id = names[i];
+            if(!seen.get( id )) {
+                seen.set( id );
+                // As written, same as the split method gives, so the output doesn't depend on
+                // which method parsed the block; that only ever has single spaces between words
+                out.add( singleSpaced( content.subSequence( i, longest[i] ) ) );
+            }
+            i = longest[i];
         }
-
-        return out;
+        group.addAll( out );
+        return true;
     }
 
-    // Check that the list we've parsed seems to actually contain reasonable names
-    private static boolean sanityCheck(List<String> reps) {
-        if(reps == null) {
-            return false;
-        }
-        for ( String rep : reps )
+    // A name found split over lines, like "Franks  Jr.", with the run of whitespace where the lines
+    // were joined made one space
+    private static String singleSpaced( CharSequence name )
+    {
+        StringBuilder sb = new StringBuilder( name.length() );
+        for ( int i = 0; i < name.length(); i++ )
         {
-            if(!rep.toLowerCase().matches( "[a-z’'.-]+( [a-z0-9’'.-]+){0,2}" )) {
-                return false;
+            char c = name.charAt( i );
+            if(!Character.isWhitespace( c )) {
+                sb.append( c );
+            } else if(sb.charAt( sb.length() - 1 ) != ' ') {
+                sb.append( ' ' );
             }
         }
-        return true;
+        return sb.toString();
     }
 
     private Analyzer.VoteContext vote;
     private State state = State.DONE;
 
     // If we fail in parsing, we fall back to trying to pull these names out.
-    // To reduce the search space, these are all lowercase
-    private final SortedSet<String> knownReps = new TreeSet<>( (a, b) -> {
-        // Sort by string length, because some of the shorter names may be substrings in
-        // the longer names, so we need to pull out the longer names first.
-        int difference = Comparator.comparingInt( String::length ).reversed().compare( a, b );
-        // We can't return 0, because then treeset thinks the strings are equal and deletes one
-        if(difference != 0) {
-            return difference;
-        }
-        // If they are the same length, sort alphabetically
-        return a.compareTo( b );
-    } );
+    private final Roster roster;
+    // Where votes are recorded, see Session
+    private final RepTable reps;
+
+    public VoteParser()
+    {
+        this( new RepTable(), new Roster() );
+    }
+
+    public VoteParser( RepTable reps, Roster roster )
+    {
+        this.reps = reps;
+        this.roster = roster;
+    }
 
     public void newVote() {
         vote = new Analyzer.VoteContext();
@@ -214,7 +274,7 @@ public class VoteParser
 
     public Vote toVote()
     {
-        return vote.toVote();
+        return vote.toVote( reps );
     }
 
     // Parse longform vote, you need to call newVote() before you start feeding stuff to this.
@@ -225,9 +285,11 @@ public class VoteParser
         return state == State.DONE;
     }
 
-    // Called during parsing as we find votes
-    private void addVotesToCurrentGroup( String[] reps ) {
-        knownReps.addAll( Arrays.stream( reps ).map( String::toLowerCase ).map( String::trim ).collect( Collectors.toList() ) );
-        vote.addVotesToCurrentGroup( reps );
+    // Called during parsing with the group we've just added votes to, and where the new ones start
+    private void learn( List<String> group, int from ) {
+        for ( int i = from; i < group.size(); i++ )
+        {
+            roster.learn( group.get( i ) );
+        }
     }
 }
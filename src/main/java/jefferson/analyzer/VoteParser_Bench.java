@@ -0,0 +1,123 @@
+package jefferson.analyzer;
+
+import jefferson.Sanitizer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// Compares the vote block scanner in VoteParser.parseUsingSplitMethod against the split and regex
+// method it replaced, on the vote blocks of the test journals.
+// Usage: VoteParser_Bench [iterations]
+public class VoteParser_Bench
+{
+    public static void main( String ... args ) throws IOException
+    {
+        int iterations = args.length > 0 ? Integer.parseInt( args[0] ) : 20000;
+        List<Sanitizer.Paragraph> blocks = voteBlocks( loadJournal( "HB10_taken_up_amended_and_laid_over.txt" ) );
+        VoteParser parser = new VoteParser();
+        parser.newVote();
+
+        // Run each once untimed to warm up, then for real
+        for ( int round = 0; round < 2; round++ )
+        {
+            long names = 0;
+            long start = System.nanoTime();
+            for ( int i = 0; i < iterations; i++ )
+            {
+                for ( Sanitizer.Paragraph pg : blocks )
+                {
+                    List<String> out = oldSplitMethod( pg );
+                    if(oldSanityCheck( out )) {
+                        names += out.size();
+                    }
+                }
+            }
+            long oldNanos = System.nanoTime() - start;
+
+            long scanned = 0;
+            List<String> group = new ArrayList<>();
+            start = System.nanoTime();
+            for ( int i = 0; i < iterations; i++ )
+            {
+                for ( Sanitizer.Paragraph pg : blocks )
+                {
+                    group.clear();
+                    if(parser.parseUsingSplitMethod( pg, group )) {
+                        scanned += group.size();
+                    }
+                }
+            }
+            long scannerNanos = System.nanoTime() - start;
+
+            if(names != scanned) {
+                throw new AssertionError( String.format( "Split method found %d names, scanner %d", names, scanned ) );
+            }
+            if(round == 1) {
+                long total = (long) iterations * blocks.size();
+                System.err.printf( "split:   %6.0f ns/block (%d blocks, %d names)%n", (double) oldNanos / total, blocks.size(), names / iterations );
+                System.err.printf( "scanner: %6.0f ns/block%n", (double) scannerNanos / total );
+                System.err.printf( "speedup: %.1fx%n", (double) oldNanos / scannerNanos );
+            }
+        }
+    }
+
+    // The old parseUsingSplitMethod and sanityCheck, kept here as the baseline
+    private static List<String> oldSplitMethod( Sanitizer.Paragraph pg )
+    {
+        List<String> out = new ArrayList<>();
+        String[] parts = pg.contents().split( " {2}" );
+        for ( String part : parts )
+        {
+            if(part.isBlank()) {
+                continue;
+            }
+            part = part.trim();
+            if(!part.toLowerCase().matches( "[a-z’'.-]+( [a-z0-9’'.-]+)*" )) {
+                throw new RuntimeException( "!!" );
+            }
+            out.add( part );
+        }
+        return out;
+    }
+
+    private static boolean oldSanityCheck( List<String> reps )
+    {
+        for ( String rep : reps )
+        {
+            if(!rep.toLowerCase().matches( "[a-z’'.-]+( [a-z0-9’'.-]+){0,2}" )) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Paragraphs following a vote group header, like "AYES: 051", up to the next thing that isn't
+    private static List<Sanitizer.Paragraph> voteBlocks( List<String> lines )
+    {
+        List<Sanitizer.Paragraph> blocks = new ArrayList<>();
+        boolean inVote = false;
+        for ( Sanitizer.Paragraph pg : new Sanitizer().sanitize( "bench", lines ) )
+        {
+            String text = pg.contents();
+            if(text.matches( "\\s*[A-Z ]+:\\s*\\d+\\s*" )) {
+                inVote = true;
+            } else if(inVote && text.matches( "(\\s*[A-Za-z’'.-]+( [A-Za-z0-9’'.-]+)*)+\\s*" )) {
+                blocks.add( new Sanitizer.Paragraph( pg.source, text ) );
+            } else {
+                inVote = false;
+            }
+        }
+        return blocks;
+    }
+
+    private static List<String> loadJournal( String name ) throws IOException
+    {
+        try ( InputStream in = VoteParser_Bench.class.getResourceAsStream( String.format( "/testdata/%s", name ) ) ) {
+            return Arrays.asList( new String( in.readAllBytes(), StandardCharsets.UTF_8 ).split( "\n" ) );
+        }
+    }
+}
@@ -1,7 +1,5 @@
 package jefferson.domain;
 
-import java.util.HashMap;
-import java.util.Map;
 import java.util.Objects;
 
 public class Motion
@@ -47,34 +45,44 @@ public class Motion
     // then the thing being amended is pointed to here.
     public final Motion relatesTo;
 
+    // The motion at the end of the relatesTo chain, which should be the main motion
+    private final Motion root;
+    // Worked out up front, from relatesTo's, so hashing a motion never walks the chain
+    private final int hash;
+    // The table the motion was interned in and its id there; null and -1 if it wasn't
+    final MotionTable table;
+    private final int id;
+
     public Motion( Type type, String proposal, Motion relatesTo )
+    {
+        this( type, proposal, relatesTo, null, -1 );
+    }
+
+    Motion( Type type, String proposal, Motion relatesTo, MotionTable table, int id )
     {
         this.type = type;
         this.proposal = proposal;
         this.relatesTo = relatesTo;
+        this.root = relatesTo == null ? this : relatesTo.root;
+        this.hash = Objects.hash( type, proposal, relatesTo );
+        this.table = table;
+        this.id = id;
     }
 
-    public Map<String,Object> toMap()
+    public Motion mainMotion()
     {
-        HashMap<String,Object> out = new HashMap<>();
-        out.put( "type", type.name() );
-        out.put( "proposal", proposal );
-        if(relatesTo != null) {
-            out.put( "relatesTo", relatesTo.toMap() );
+        if(root.type != Type.MAIN_MOTION) {
+            throw new IllegalStateException( root + " does not relate to any other motion, but is not a MAIN_MOTION?" );
         }
-        return out;
+        return root;
     }
 
-    // Backtrack until we find the main motion
-    public Motion mainMotion()
+    // Id of the motion in the table it was interned in, see MotionTable; -1 if it wasn't. Ids are
+    // in the order motions were first interned, so they are only the same from run to run when
+    // journals are analyzed one at a time, see Session.
+    public int id()
     {
-        if(relatesTo == null) {
-            if(type != Type.MAIN_MOTION) {
-                throw new IllegalStateException( this + " does not relate to any other motion, but is not a MAIN_MOTION?" );
-            }
-            return this;
-        }
-        return relatesTo.mainMotion();
+        return id;
     }
 
     @Override
@@ -96,13 +104,17 @@ public class Motion
             return false;
         }
         Motion motion = (Motion) o;
-        return type == motion.type && proposal.equals( motion.proposal ) &&
-                Objects.equals( relatesTo, motion.relatesTo );
+        if(table != null && table == motion.table) {
+            // A table has one instance of each motion
+            return false;
+        }
+        return hash == motion.hash && type == motion.type && proposal.equals( motion.proposal ) &&
+                (relatesTo == motion.relatesTo || Objects.equals( relatesTo, motion.relatesTo ));
     }
 
     @Override
     public int hashCode()
     {
-        return Objects.hash( type, proposal, relatesTo );
+        return hash;
     }
 }
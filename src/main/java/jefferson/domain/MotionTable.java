@@ -0,0 +1,115 @@
+package jefferson.domain;
+
+import jefferson.analyzer.BillScanner;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Gives each motion of a session one instance and a small integer id, dense from 0, so motions
+// the analyzer comes across again - a bill taken up, laid over and taken up again, in the same
+// journal or another - are the same object, and equal motions are identical. Share one table
+// across a session, like RepTable. Motions are also indexed by the bills they concern, theirs and
+// those of the motions they relate to, see BillScanner.Reference.keys(). Safe for concurrent use.
+public class MotionTable
+{
+    private final ConcurrentHashMap<Motion, Motion> interned = new ConcurrentHashMap<>();
+    // Ids of the motions concerning each bill, in the order they were interned
+    private final ConcurrentHashMap<String, int[]> bills = new ConcurrentHashMap<>();
+    private volatile Motion[] motions = new Motion[256];
+    private volatile int size;
+
+    private static final int[] NONE = new int[0];
+
+    // The one instance of this motion, making it if there is none yet
+    public Motion intern( Motion.Type type, String proposal, Motion relatesTo )
+    {
+        if(relatesTo != null && relatesTo.table != this) {
+            relatesTo = intern( relatesTo );
+        }
+        Motion candidate = new Motion( type, proposal, relatesTo );
+        Motion motion = interned.get( candidate );
+        if(motion != null) {
+            return motion;
+        }
+        synchronized ( this ) {
+            motion = interned.get( candidate );
+            if(motion != null) {
+                return motion;
+            }
+            int next = size;
+            Motion[] current = motions;
+            if(next == current.length) {
+                current = Arrays.copyOf( current, next * 2 );
+            }
+            motion = new Motion( type, proposal, relatesTo, this, next );
+            current[next] = motion;
+            motions = current;
+            size = next + 1;
+            for ( String bill : bills( motion ) )
+            {
+                bills.merge( bill, new int[]{ next }, MotionTable::concat );
+            }
+            // Last, so anyone who can find the motion can find its id
+            interned.put( motion, motion );
+            return motion;
+        }
+    }
+
+    public Motion intern( Motion motion )
+    {
+        return motion.table == this ? motion : intern( motion.type, motion.proposal, motion.relatesTo );
+    }
+
+    // This table's instance of the motion; null if it has none
+    public Motion find( Motion motion )
+    {
+        return motion.table == this ? motion : interned.get( motion );
+    }
+
+    public Motion motion( int id )
+    {
+        return motions[id];
+    }
+
+    public int size()
+    {
+        return size;
+    }
+
+    // Every motion concerning the bill, in the order they were interned, like concerning( "HB 10" )
+    public List<Motion> concerning( String bill )
+    {
+        int[] ids = bills.getOrDefault( bill, NONE );
+        Motion[] current = motions;
+        List<Motion> out = new ArrayList<>( ids.length );
+        for ( int id : ids )
+        {
+            out.add( current[id] );
+        }
+        return out;
+    }
+
+    private static List<String> bills( Motion motion )
+    {
+        List<String> keys = new ArrayList<>( 2 );
+        for ( ; motion != null; motion = motion.relatesTo )
+        {
+            for ( String key : BillScanner.keys( motion.proposal ) )
+            {
+                if(!keys.contains( key )) {
+                    keys.add( key );
+                }
+            }
+        }
+        return keys;
+    }
+
+    private static int[] concat( int[] a, int[] b )
+    {
+        int[] out = Arrays.copyOf( a, a.length + b.length );
+        System.arraycopy( b, 0, out, a.length, b.length );
+        return out;
+    }
+}
@@ -0,0 +1,86 @@
+package jefferson.domain;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.List;
+import java.util.Objects;
+
+public class MotionTable_Test
+{
+    public static void main(String ... argv) throws Exception
+    {
+        boolean assertsEnabled = false;
+        assert assertsEnabled = true;
+        if(!assertsEnabled) {
+            throw new AssertionError( "Assertions must be enabled to run tests." );
+        }
+
+        boolean passed = true;
+        Class<?> cls = MethodHandles.lookup().lookupClass();
+        for ( Method subject : cls.getDeclaredMethods() )
+        {
+            if( ! ( subject.getName().startsWith( "test" ) ) ) {
+                continue;
+            }
+            try {
+                subject.invoke( cls.getConstructors()[0].newInstance() );
+                System.err.printf("PASS: %s%n", subject.getName());
+            } catch( InvocationTargetException e ) {
+                if(e.getCause() != null && e.getCause() instanceof AssertionError ) {
+                    AssertionError ae = (AssertionError) e.getCause();
+                    System.err.printf("FAIL: %s: %s @ %s%n", subject.getName(), ae.getMessage(), ae.getStackTrace()[0].toString());
+                    passed = false;
+                } else {
+                    throw e;
+                }
+            }
+        }
+
+        if(!passed) {
+            System.exit( 1 );
+        }
+    }
+
+    public void testInternsEqualMotionsToOneInstance() {
+        MotionTable table = new MotionTable();
+        Motion hb10 = table.intern( Motion.Type.MAIN_MOTION, "HCS HB 10", null );
+        Motion amendment = table.intern( Motion.Type.AMEND, "House Amendment 2 of HCS HB 10", hb10 );
+
+        // Taken up again, in this journal or another
+        Motion again = table.intern( Motion.Type.MAIN_MOTION, "HCS HB 10", null );
+        assert again == hb10;
+        assert table.intern( Motion.Type.AMEND, "House Amendment 2 of HCS HB 10", again ) == amendment;
+        assert table.intern( new Motion( Motion.Type.AMEND, "House Amendment 2 of HCS HB 10",
+                new Motion( Motion.Type.MAIN_MOTION, "HCS HB 10", null ) ) ) == amendment;
+
+        assertEq( 0, hb10.id() );
+        assertEq( 1, amendment.id() );
+        assertEq( amendment, table.motion( 1 ) );
+        assertEq( 2, table.size() );
+        assert amendment.mainMotion() == hb10;
+
+        // Equal to the same motion made outside a table
+        Motion loose = new Motion( Motion.Type.AMEND, "House Amendment 2 of HCS HB 10", new Motion( Motion.Type.MAIN_MOTION, "HCS HB 10", null ) );
+        assertEq( loose, amendment );
+        assertEq( amendment, loose );
+        assertEq( loose.hashCode(), amendment.hashCode() );
+        assert !amendment.equals( table.intern( Motion.Type.AMEND, "House Amendment 3 of HCS HB 10", hb10 ) );
+    }
+
+    public void testFindsMotionsConcerningABill() {
+        MotionTable table = new MotionTable();
+        Motion hb10 = table.intern( Motion.Type.MAIN_MOTION, "HCS HB 10", null );
+        Motion amendment = table.intern( Motion.Type.AMEND, "House Amendment 2 of HCS HB 10", hb10 );
+        Motion question = table.intern( Motion.Type.END_DEBATE, "move the previous question", amendment );
+        Motion hb677 = table.intern( Motion.Type.MAIN_MOTION, "SS HCS HB 677", null );
+
+        assertEq( List.of( hb10, amendment, question ), table.concerning( "HB 10" ) );
+        assertEq( List.of( hb677 ), table.concerning( "HB 677" ) );
+        assertEq( List.of(), table.concerning( "HB 11" ) );
+    }
+
+    private void assertEq(Object expected, Object actual) {
+        assert Objects.equals( expected, actual ) : String.format("Expected \n  %s \nto be \n  %s", actual, expected);
+    }
+}
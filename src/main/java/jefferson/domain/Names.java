@@ -0,0 +1,38 @@
+package jefferson.domain;
+
+// How rep names are compared. The journals are not consistent about case or apostrophes, so
+// "O’Donnell" in one vote is "O'Donnell" in the next; these rules decide which names are the same.
+public class Names
+{
+    // The name in canonical form: lowercase, straight apostrophes, single spaces between words
+    public static String normalize( CharSequence name )
+    {
+        StringBuilder sb = new StringBuilder( name.length() );
+        boolean space = false;
+        for ( int i = 0; i < name.length(); i++ )
+        {
+            char c = name.charAt( i );
+            if(Character.isWhitespace( c )) {
+                space = sb.length() > 0;
+                continue;
+            }
+            if(space) {
+                sb.append( ' ' );
+                space = false;
+            }
+            sb.append( fold( c ) );
+        }
+        return sb.toString();
+    }
+
+    // A single character in canonical form, for matching names char by char
+    public static char fold( char c )
+    {
+        return isApostrophe( c ) ? '\'' : Character.toLowerCase( c );
+    }
+
+    public static boolean isApostrophe( char c )
+    {
+        return c == '\'' || c == '’' || c == '‘';
+    }
+}
@@ -0,0 +1,76 @@
+package jefferson.domain;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Gives each rep name a small integer id, dense from 0, so votes can be stored as bitsets over
+// those ids, see Vote. Share one table across a session so ids are comparable between votes.
+// Names are kept as written, and also indexed by their normalized form, see Names, so they can be
+// looked up however they are spelled. Safe for concurrent use.
+public class RepTable
+{
+    private final ConcurrentHashMap<String, Integer> ids = new ConcurrentHashMap<>();
+    // Ids of every way of writing each normalized name, usually just the one
+    private final ConcurrentHashMap<String, int[]> normalized = new ConcurrentHashMap<>();
+    private volatile String[] names = new String[256];
+    private volatile int size;
+
+    private static final int[] NONE = new int[0];
+
+    // Id of name, giving it one if it has none yet
+    public int intern( String name )
+    {
+        Integer id = ids.get( name );
+        if(id != null) {
+            return id;
+        }
+        synchronized ( this ) {
+            id = ids.get( name );
+            if(id != null) {
+                return id;
+            }
+            int next = size;
+            String[] current = names;
+            if(next == current.length) {
+                current = Arrays.copyOf( current, next * 2 );
+            }
+            current[next] = name;
+            names = current;
+            size = next + 1;
+            normalized.merge( Names.normalize( name ), new int[]{ next }, RepTable::concat );
+            // Last, so anyone who can see the id can see the name
+            ids.put( name, next );
+            return next;
+        }
+    }
+
+    // Id of name, or -1 if it has none
+    public int id( String name )
+    {
+        Integer id = ids.get( name );
+        return id == null ? -1 : id;
+    }
+
+    // Ids of every name that normalizes the same as this one; empty if there are none
+    public int[] idsOf( String name )
+    {
+        return normalized.getOrDefault( Names.normalize( name ), NONE );
+    }
+
+    public String name( int id )
+    {
+        return names[id];
+    }
+
+    public int size()
+    {
+        return size;
+    }
+
+    private static int[] concat( int[] a, int[] b )
+    {
+        int[] out = Arrays.copyOf( a, a.length + b.length );
+        System.arraycopy( b, 0, out, a.length, b.length );
+        return out;
+    }
+}
@@ -1,14 +1,15 @@
 package jefferson.domain;
 
-import jefferson.analyzer.Collections;
-
-import java.util.Arrays;
-import java.util.HashMap;
-import java.util.HashSet;
-import java.util.Map;
+import java.util.AbstractSet;
+import java.util.BitSet;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
 import java.util.Objects;
 import java.util.Set;
 
+// How each rep voted. Reps are interned in a RepTable and each group is a bitset over their ids,
+// which is a few words per group rather than a hash set of names, and lets votes be compared a
+// word at a time. The name sets below are read-only views onto the bitsets.
 public class Vote
 {
     public final Set<String> ayes;
@@ -18,54 +19,139 @@ public class Vote
     public final Set<String> present;
 
     public enum Group {
-        AYES,
-        NOES,
-        ABSENT,
-        ABSENT_WITH_LEAVE,
-        PRESENT
+        AYES( "ayes" ),
+        NOES( "noes" ),
+        ABSENT( "absent" ),
+        ABSENT_WITH_LEAVE( "absentWithLeave" ),
+        PRESENT( "present" );
+
+        // What the group is called in the output
+        public final String key;
+
+        Group( String key )
+        {
+            this.key = key;
+        }
     }
 
+    private static final Group[] GROUPS = Group.values();
+    private static final Group[] ATTENDING = { Group.AYES, Group.NOES, Group.PRESENT };
+
+    private final RepTable reps;
+    // Indexed by Group.ordinal()
+    private final BitSet[] groups = new BitSet[GROUPS.length];
+
     public Vote( String[] ayes, String[] noes, String[] absent, String[] absentWithLeave, String[] present )
     {
-        this.ayes = ayes == null ? new HashSet<>() : new HashSet<>( Arrays.asList( ayes ) );
-        this.noes = noes == null ? new HashSet<>() : new HashSet<>( Arrays.asList( noes ) );
-        this.absent = absent == null ? new HashSet<>() : new HashSet<>( Arrays.asList( absent ) );
-        this.absentWithLeave = absentWithLeave == null ? new HashSet<>() : new HashSet<>( Arrays.asList( absentWithLeave ) );
-        this.present = present == null ? new HashSet<>() : new HashSet<>( Arrays.asList( present ) );
+        this( new RepTable(), ayes, noes, absent, absentWithLeave, present );
+    }
+
+    public Vote( RepTable reps, String[] ayes, String[] noes, String[] absent, String[] absentWithLeave, String[] present )
+    {
+        this.reps = reps;
+        this.groups[Group.AYES.ordinal()] = intern( reps, ayes );
+        this.groups[Group.NOES.ordinal()] = intern( reps, noes );
+        this.groups[Group.ABSENT.ordinal()] = intern( reps, absent );
+        this.groups[Group.ABSENT_WITH_LEAVE.ordinal()] = intern( reps, absentWithLeave );
+        this.groups[Group.PRESENT.ordinal()] = intern( reps, present );
+        this.ayes = new GroupNames( Group.AYES );
+        this.noes = new GroupNames( Group.NOES );
+        this.absent = new GroupNames( Group.ABSENT );
+        this.absentWithLeave = new GroupNames( Group.ABSENT_WITH_LEAVE );
+        this.present = new GroupNames( Group.PRESENT );
+    }
+
+    private static BitSet intern( RepTable reps, String[] names )
+    {
+        BitSet bits = new BitSet();
+        if(names != null) {
+            for ( String name : names )
+            {
+                bits.set( reps.intern( name ) );
+            }
+        }
+        return bits;
     }
 
     public boolean isRepInvolved( String name ) {
         return voteOfRep( name ) != null;
     }
 
-    public Map<String,Object> toMap()
+    public Set<String> names( Group group )
     {
-        Map<String, Object> out = new HashMap<>();
-        out.put( "ayes", ayes );
-        out.put( "noes", noes );
-        out.put( "absent", absent );
-        out.put( "absentWithLeave", absentWithLeave );
-        out.put( "present", present );
-        return out;
+        switch( group ) {
+        case AYES: return ayes;
+        case NOES: return noes;
+        case ABSENT: return absent;
+        case ABSENT_WITH_LEAVE: return absentWithLeave;
+        case PRESENT: return present;
+        }
+        throw new IllegalArgumentException( "Unknown vote group: " + group );
     }
 
+    // How the rep voted, matching names the way Names.normalize(..) does; null if they didn't
     public Group voteOfRep( String name ) {
-        if( Collections.containsIgnoreCase(name, ayes)) {
-            return Group.AYES;
-        }
-        if( Collections.containsIgnoreCase(name, noes)) {
-            return Group.NOES;
+        for ( int id : reps.idsOf( name ) )
+        {
+            for ( Group group : GROUPS )
+            {
+                if(groups[group.ordinal()].get( id )) {
+                    return group;
+                }
+            }
         }
-        if( Collections.containsIgnoreCase(name, absent)) {
-            return Group.ABSENT;
+        return null;
+    }
+
+    // Number of reps who voted the same way, aye, no or present, in both votes
+    public int agreement( Vote other )
+    {
+        RepTable table = common( other );
+        int agree = 0;
+        for ( Group group : ATTENDING )
+        {
+            BitSet both = (BitSet) bits( group, table ).clone();
+            both.and( other.bits( group, table ) );
+            agree += both.cardinality();
         }
-        if( Collections.containsIgnoreCase(name, absentWithLeave)) {
-            return Group.ABSENT_WITH_LEAVE;
+        return agree;
+    }
+
+    // Number of reps who took part in the vote, voting aye, no or present
+    public int attending()
+    {
+        BitSet attending = (BitSet) groups[Group.AYES.ordinal()].clone();
+        attending.or( groups[Group.NOES.ordinal()] );
+        attending.or( groups[Group.PRESENT.ordinal()] );
+        return attending.cardinality();
+    }
+
+    // A quorum is a majority of the members of the house
+    public boolean hasQuorum( int members )
+    {
+        return attending() > members / 2;
+    }
+
+    // Table to compare this and the other vote with; if they don't share one, a scratch table, so
+    // comparing doesn't add names to either
+    private RepTable common( Vote other )
+    {
+        return other.reps == reps ? reps : new RepTable();
+    }
+
+    // The group's bits with ids from the given table, translating them if that is not ours
+    private BitSet bits( Group group, RepTable table )
+    {
+        BitSet bits = groups[group.ordinal()];
+        if(table == reps) {
+            return bits;
         }
-        if( Collections.containsIgnoreCase(name, present)) {
-            return Group.PRESENT;
+        BitSet translated = new BitSet();
+        for ( int id = bits.nextSetBit( 0 ); id >= 0; id = bits.nextSetBit( id + 1 ) )
+        {
+            translated.set( table.intern( reps.name( id ) ) );
         }
-        return null;
+        return translated;
     }
 
     @Override
@@ -80,15 +166,20 @@ public class Vote
             return false;
         }
         Vote vote = (Vote) o;
-        return ayes.equals( vote.ayes ) && noes.equals( vote.noes ) &&
-                absent.equals( vote.absent ) &&
-                absentWithLeave.equals( vote.absentWithLeave ) &&
-                present.equals( vote.present );
+        RepTable table = common( vote );
+        for ( Group group : GROUPS )
+        {
+            if(!bits( group, table ).equals( vote.bits( group, table ) )) {
+                return false;
+            }
+        }
+        return true;
     }
 
     @Override
     public int hashCode()
     {
+        // From the names rather than the bits, so equal votes from different tables agree
         return Objects.hash( ayes, noes, absent, absentWithLeave, present );
     }
 
@@ -101,11 +192,11 @@ public class Vote
 
     public String diff( Vote other )
     {
-        String ayeDiff = Collections.diff( ayes, other.ayes );
-        String noeDiff = Collections.diff( noes, other.noes );
-        String absentDiff = Collections.diff( absent, other.absent );
-        String absentWithLeaveDiff = Collections.diff( absentWithLeave, other.absentWithLeave );
-        String presentDiff = Collections.diff( present, other.present );
+        String ayeDiff = diff( Group.AYES, other );
+        String noeDiff = diff( Group.NOES, other );
+        String absentDiff = diff( Group.ABSENT, other );
+        String absentWithLeaveDiff = diff( Group.ABSENT_WITH_LEAVE, other );
+        String presentDiff = diff( Group.PRESENT, other );
         return String.format(
                 "ayes: %s%n" +
                 "noes: %s%n" +
@@ -118,4 +209,88 @@ public class Vote
                 absentWithLeaveDiff.isEmpty() ? "equal" : absentWithLeaveDiff,
                 presentDiff.isEmpty() ? "equal" : presentDiff);
     }
+
+    // Describe the difference in one group, from our perspective; the empty string if there is none
+    private String diff( Group group, Vote other )
+    {
+        RepTable table = common( other );
+        BitSet ours = bits( group, table );
+        BitSet theirs = other.bits( group, table );
+        BitSet extra = (BitSet) ours.clone();
+        extra.andNot( theirs );
+        BitSet missing = (BitSet) theirs.clone();
+        missing.andNot( ours );
+        if(!extra.isEmpty() && !missing.isEmpty()) {
+            return String.format( "extra elements: %s, missing elements: %s", names( extra, table ), names( missing, table ) );
+        } else if(!extra.isEmpty()) {
+            return String.format( "extra elements: %s", names( extra, table ) );
+        } else if(!missing.isEmpty()) {
+            return String.format( "missing elements: %s", names( missing, table ) );
+        } else {
+            return "";
+        }
+    }
+
+    private static String names( BitSet bits, RepTable table )
+    {
+        StringBuilder sb = new StringBuilder( "[" );
+        for ( int id = bits.nextSetBit( 0 ); id >= 0; id = bits.nextSetBit( id + 1 ) )
+        {
+            sb.append( sb.length() > 1 ? ", " : "" ).append( table.name( id ) );
+        }
+        return sb.append( ']' ).toString();
+    }
+
+    // Names of the reps in a group, in the order they were interned
+    private class GroupNames extends AbstractSet<String>
+    {
+        private final BitSet bits;
+
+        GroupNames( Group group )
+        {
+            this.bits = groups[group.ordinal()];
+        }
+
+        @Override
+        public boolean contains( Object o )
+        {
+            if(!(o instanceof String)) {
+                return false;
+            }
+            int id = reps.id( (String) o );
+            return id >= 0 && bits.get( id );
+        }
+
+        @Override
+        public int size()
+        {
+            return bits.cardinality();
+        }
+
+        @Override
+        public Iterator<String> iterator()
+        {
+            return new Iterator<>()
+            {
+                private int next = bits.nextSetBit( 0 );
+
+                @Override
+                public boolean hasNext()
+                {
+                    return next >= 0;
+                }
+
+                @Override
+                public String next()
+                {
+                    if(next < 0) {
+                        throw new NoSuchElementException();
+                    }
+                    String name = reps.name( next );
+                    next = bits.nextSetBit( next + 1 );
+                    return name;
+                }
+            };
+        }
+    }
 }
@@ -0,0 +1,104 @@
+package jefferson.domain;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.Objects;
+import java.util.Set;
+
+public class Vote_Test
+{
+    public static void main(String ... argv) throws Exception
+    {
+        boolean assertsEnabled = false;
+        assert assertsEnabled = true;
+        if(!assertsEnabled) {
+            throw new AssertionError( "Assertions must be enabled to run tests." );
+        }
+
+        boolean passed = true;
+        Class<?> cls = MethodHandles.lookup().lookupClass();
+        for ( Method subject : cls.getDeclaredMethods() )
+        {
+            if( ! ( subject.getName().startsWith( "test" ) ) ) {
+                continue;
+            }
+            try {
+                subject.invoke( cls.getConstructors()[0].newInstance() );
+                System.err.printf("PASS: %s%n", subject.getName());
+            } catch( InvocationTargetException e ) {
+                if(e.getCause() != null && e.getCause() instanceof AssertionError ) {
+                    AssertionError ae = (AssertionError) e.getCause();
+                    System.err.printf("FAIL: %s: %s @ %s%n", subject.getName(), ae.getMessage(), ae.getStackTrace()[0].toString());
+                    passed = false;
+                } else {
+                    throw e;
+                }
+            }
+        }
+
+        if(!passed) {
+            System.exit( 1 );
+        }
+    }
+
+    public void testGroupsReadAsNameSets() {
+        Vote vote = new Vote( new String[]{ "Rone", "Bland Manlove", "Rone" }, new String[]{ "Hicks" }, null, null, null );
+
+        assertEq( Set.of( "Rone", "Bland Manlove" ), vote.ayes );
+        assertEq( Set.of( "Hicks" ), vote.noes );
+        assertEq( Set.of(), vote.present );
+        assert vote.ayes.contains( "Rone" );
+        assert !vote.ayes.contains( "Hicks" );
+        assertEq( Vote.Group.NOES, vote.voteOfRep( "hicks" ) );
+        assert !vote.isRepInvolved( "Smith" );
+    }
+
+    public void testComparesVotesFromDifferentTables() {
+        RepTable session = new RepTable();
+        Vote a = new Vote( session, new String[]{ "Rone", "Hicks" }, new String[]{ "Smith" }, null, null, null );
+        Vote b = new Vote( new String[]{ "Hicks", "Rone" }, new String[]{ "Smith" }, null, null, null );
+        Vote c = new Vote( session, new String[]{ "Rone" }, new String[]{ "Smith", "Walsh" }, null, null, new String[]{ "Hicks" } );
+
+        assertEq( a, b );
+        assertEq( a.hashCode(), b.hashCode() );
+        assert !a.equals( c );
+
+        // Comparing with a vote from another table doesn't add its names to ours
+        Vote stranger = new Vote( new String[]{ "Newcomer" }, null, null, null, null );
+        int known = session.size();
+        assert !a.equals( stranger );
+        a.diff( stranger );
+        assertEq( known, session.size() );
+
+        assertEq( 2, a.agreement( c ) );
+        assertEq( 2, c.agreement( b ) );
+        assertEq( "ayes: extra elements: [Hicks]\n" +
+                "noes: missing elements: [Walsh]\n" +
+                "absent: equal\n" +
+                "absentWithLeave: equal\n" +
+                "present: missing elements: [Hicks]", a.diff( c ).replace( System.lineSeparator(), "\n" ) );
+    }
+
+    public void testLooksUpRepsHoweverTheyAreWritten() {
+        Vote vote = new Vote( new String[]{ "O’Donnell", "Franks  Jr." }, new String[]{ "mr. speaker" }, null, null, null );
+
+        assertEq( Vote.Group.AYES, vote.voteOfRep( "o'donnell" ) );
+        assertEq( Vote.Group.AYES, vote.voteOfRep( "FRANKS JR." ) );
+        assertEq( Vote.Group.NOES, vote.voteOfRep( "Mr. Speaker" ) );
+        assertEq( null, vote.voteOfRep( "Franks" ) );
+        assertEq( "o'donnell franks jr.", Names.normalize( " O’Donnell\tFranks   Jr. " ) );
+    }
+
+    public void testQuorum() {
+        Vote vote = new Vote( new String[]{ "A", "B" }, new String[]{ "C" }, null, new String[]{ "D", "E", "F" }, new String[]{ "G" } );
+
+        assertEq( 4, vote.attending() );
+        assert vote.hasQuorum( 7 );
+        assert !vote.hasQuorum( 8 );
+    }
+
+    private void assertEq(Object expected, Object actual) {
+        assert Objects.equals( expected, actual ) : String.format("Expected \n  %s \nto be \n  %s", actual, expected);
+    }
+}